@@ -0,0 +1,287 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot;
+
+import com.symphony.jirabot.configurations.IConfigurationProvider;
+import com.symphony.jirabot.models.JiraProject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Polls each JIRA project of interest on its own schedule.
+ *
+ * Every project has a current poll interval between a configurable floor and ceiling. A poll
+ * that finds updated issues halves the interval, a poll that finds nothing doubles it, so busy
+ * projects are polled often and quiet ones rarely. With multi-project search enabled, the projects
+ * that are due at the same time are fetched with one search per polling thread.
+ */
+public class AdaptiveProjectPollScheduler implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveProjectPollScheduler.class);
+
+  /**
+   * How often the scheduler checks for projects that are due
+   */
+  private static final long TICK_MILLIS = 1000;
+
+  private final IConfigurationProvider configurationProvider;
+  private final SymphonyJiraBot symphonyJiraBot;
+
+  private final long minIntervalMillis;
+  private final long maxIntervalMillis;
+
+  private final Map<String, ProjectSchedule> schedules =
+      new ConcurrentHashMap<String, ProjectSchedule>();
+
+  private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+
+  public AdaptiveProjectPollScheduler(IConfigurationProvider configurationProvider,
+      SymphonyJiraBot symphonyJiraBot) {
+    this.configurationProvider = configurationProvider;
+    this.symphonyJiraBot = symphonyJiraBot;
+
+    if (configurationProvider.isJiraWebhookEnabled()) {
+      // webhooks deliver the updates, polling only has to pick up what they missed
+      this.minIntervalMillis = toIntervalMillis("reconciliation refresh rate",
+          configurationProvider.getJiraReconciliationRefreshRateInSeconds());
+      this.maxIntervalMillis = this.minIntervalMillis;
+    } else {
+      this.minIntervalMillis = toIntervalMillis("min refresh rate",
+          configurationProvider.getJiraMinRefreshRateInSeconds());
+      this.maxIntervalMillis = toIntervalMillis("max refresh rate",
+          configurationProvider.getJiraMaxRefreshRateInSeconds());
+      if (maxIntervalMillis < minIntervalMillis) {
+        throw new IllegalArgumentException("JIRA max refresh rate ("
+            + configurationProvider.getJiraMaxRefreshRateInSeconds()
+            + "s) is below the min refresh rate ("
+            + configurationProvider.getJiraMinRefreshRateInSeconds() + "s)");
+      }
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException If the interval is below 1 second, as a project would be
+   * polled on every tick and an interval of 0 would never grow
+   */
+  private static long toIntervalMillis(String setting, int seconds) {
+    if (seconds <= 0) {
+      throw new IllegalArgumentException(
+          "JIRA " + setting + " must be at least 1 second, got " + seconds);
+    }
+    return TimeUnit.SECONDS.toMillis(seconds);
+  }
+
+  public void start() {
+    LOG.info("polling JIRA projects every {}s to {}s depending on activity",
+        TimeUnit.MILLISECONDS.toSeconds(minIntervalMillis),
+        TimeUnit.MILLISECONDS.toSeconds(maxIntervalMillis));
+    ticker.scheduleWithFixedDelay(this, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public void stop() {
+    ticker.shutdownNow();
+  }
+
+  /**
+   * Polls the projects that are due now, on every tick
+   */
+  public void run() {
+    try {
+      pollDueProjects(System.currentTimeMillis());
+    } catch (RuntimeException e) {
+      // an exception would stop the ticker for good
+      LOG.error("failed to schedule JIRA project polls", e);
+    }
+  }
+
+  /**
+   * Starts a poll for every project that is due at the given time and not already being polled
+   */
+  public void pollDueProjects(long now) {
+    List<String> dueProjectNames = new ArrayList<String>();
+    for (String projectName : configurationProvider.getJiraProjectsOfInterest()) {
+      ProjectSchedule schedule = schedules.get(projectName);
+      if (schedule == null) {
+        schedule = new ProjectSchedule(now, minIntervalMillis);
+        schedules.put(projectName, schedule);
+      }
+      if (schedule.isDue(now)) {
+        dueProjectNames.add(projectName);
+      }
+    }
+
+    if (dueProjectNames.isEmpty()) {
+      return;
+    }
+
+    Map<String, JiraProject> projectsByName = new HashMap<String, JiraProject>();
+    for (JiraProject project : symphonyJiraBot.findJiraProjectsOfInterest()) {
+      projectsByName.put(project.getName(), project);
+    }
+
+    List<JiraProject> dueProjects = new ArrayList<JiraProject>();
+    for (String projectName : dueProjectNames) {
+      JiraProject project = projectsByName.get(projectName);
+      if (project == null) {
+        LOG.warn("JIRA project of interest " + projectName + " was not found in JIRA");
+        schedules.get(projectName).pollFinished(now, 0);
+        continue;
+      }
+      dueProjects.add(project);
+    }
+
+    if (configurationProvider.isJiraMultiProjectSearchEnabled()) {
+      if (!dueProjects.isEmpty()) {
+        poll(dueProjects);
+      }
+    } else {
+      for (JiraProject project : dueProjects) {
+        poll(project, schedules.get(project.getName()));
+      }
+    }
+  }
+
+  private void poll(final JiraProject project, final ProjectSchedule schedule) {
+    schedule.pollStarted();
+    symphonyJiraBot.pollJiraProject(project).whenComplete(new BiConsumer<Integer, Throwable>() {
+      public void accept(Integer numUpdatedIssues, Throwable error) {
+        if (error != null) {
+          LOG.error("failed to process JIRA project " + project.getName(), error);
+          schedule.pollFailed(System.currentTimeMillis());
+        } else {
+          schedule.pollFinished(System.currentTimeMillis(), numUpdatedIssues);
+          symphonyJiraBot.flushDeliveredEventIndex();
+        }
+        LOG.debug("next poll of JIRA project " + project.getName() + " in "
+            + TimeUnit.MILLISECONDS.toSeconds(schedule.getIntervalMillis()) + "s");
+      }
+    });
+  }
+
+  /**
+   * Polls several projects with combined searches and reschedules each by its own result
+   */
+  private void poll(final List<JiraProject> projects) {
+    for (JiraProject project : projects) {
+      schedules.get(project.getName()).pollStarted();
+    }
+    symphonyJiraBot.pollJiraProjects(projects).whenComplete(
+        new BiConsumer<Map<String, Integer>, Throwable>() {
+          public void accept(Map<String, Integer> numUpdatedIssuesByProject, Throwable error) {
+            long now = System.currentTimeMillis();
+            if (error != null) {
+              LOG.error("failed to process " + projects.size() + " JIRA projects", error);
+            }
+            for (JiraProject project : projects) {
+              ProjectSchedule schedule = schedules.get(project.getName());
+              if (error != null) {
+                schedule.pollFailed(now);
+              } else {
+                Integer numUpdatedIssues = numUpdatedIssuesByProject.get(project.getName());
+                schedule.pollFinished(now, numUpdatedIssues == null ? 0 : numUpdatedIssues);
+              }
+            }
+            if (error == null) {
+              symphonyJiraBot.flushDeliveredEventIndex();
+            }
+          }
+        });
+  }
+
+  /**
+   * Current poll interval of a project, or -1 if the project has not been scheduled yet
+   */
+  public long getCurrentIntervalInSeconds(String projectName) {
+    ProjectSchedule schedule = schedules.get(projectName);
+    return schedule == null ? -1 : TimeUnit.MILLISECONDS.toSeconds(schedule.getIntervalMillis());
+  }
+
+  /**
+   * Current poll interval of every scheduled project
+   */
+  public Map<String, Long> getCurrentIntervalsInSeconds() {
+    Map<String, Long> intervals = new HashMap<String, Long>();
+    for (Map.Entry<String, ProjectSchedule> entry : schedules.entrySet()) {
+      intervals.put(entry.getKey(),
+          TimeUnit.MILLISECONDS.toSeconds(entry.getValue().getIntervalMillis()));
+    }
+    return Collections.unmodifiableMap(intervals);
+  }
+
+  /**
+   * Next poll time and current interval of one project
+   */
+  private class ProjectSchedule {
+    private long nextPollAtMillis;
+    private long intervalMillis;
+    private boolean polling;
+
+    private ProjectSchedule(long nextPollAtMillis, long intervalMillis) {
+      this.nextPollAtMillis = nextPollAtMillis;
+      this.intervalMillis = intervalMillis;
+    }
+
+    private synchronized boolean isDue(long now) {
+      return !polling && now >= nextPollAtMillis;
+    }
+
+    private synchronized void pollStarted() {
+      polling = true;
+    }
+
+    private synchronized void pollFinished(long now, int numUpdatedIssues) {
+      if (numUpdatedIssues > 0) {
+        intervalMillis = Math.max(minIntervalMillis, intervalMillis / 2);
+      } else {
+        intervalMillis = Math.min(maxIntervalMillis, intervalMillis * 2);
+      }
+      nextPollAtMillis = now + intervalMillis;
+      polling = false;
+    }
+
+    private synchronized void pollFailed(long now) {
+      // keep the interval, the failure says nothing about the project's activity
+      nextPollAtMillis = now + intervalMillis;
+      polling = false;
+    }
+
+    private synchronized long getIntervalMillis() {
+      return intervalMillis;
+    }
+  }
+}
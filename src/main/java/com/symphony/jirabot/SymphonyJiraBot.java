@@ -28,22 +28,44 @@ import com.symphony.api.agent.model.V2Message;
 import com.symphony.api.pod.model.V2RoomDetail;
 import com.symphony.jirabot.clients.IJiraClient;
 import com.symphony.jirabot.clients.ISymphonyClient;
+import com.symphony.jirabot.clients.JiraProjectCatalogue;
 import com.symphony.jirabot.configurations.IConfigurationProvider;
 import com.symphony.jirabot.formatters.JiraIssueFormatterMessageML;
 import com.symphony.jirabot.formatters.JiraIssueFormatterPlainText;
 import com.symphony.jirabot.formatters.MessageML;
 import com.symphony.jirabot.models.JiraIssue;
 import com.symphony.jirabot.models.JiraProject;
+import com.symphony.jirabot.pipeline.PipelineStage;
+import com.symphony.jirabot.pipeline.PollTracker;
+import com.symphony.jirabot.stores.DeliveredEventIndex;
+import com.symphony.jirabot.stores.ProjectWatermarkStore;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
-public class SymphonyJiraBot implements Runnable {
+public class SymphonyJiraBot {
 
   private final Logger LOG = LoggerFactory.getLogger(SymphonyJiraBot.class);
 
@@ -56,6 +78,36 @@ public class SymphonyJiraBot implements Runnable {
   private final JiraIssueFormatterPlainText lowPriorityPlain, highPriorityPlain;
   private final JiraIssueFormatterMessageML highPriorityMessageMl;
 
+  /**
+   * Polls the projects of interest in parallel. Each poll searches JIRA on one of these threads
+   * and hands the issues it finds to the pipeline stages below.
+   */
+  private final ExecutorService projectPollingExecutor;
+  private final int pollingThreadCount;
+
+  private final ProjectWatermarkStore watermarkStore;
+
+  /**
+   * Event id used for an issue that is reported without any history, i.e. its creation
+   */
+  private static final String CREATED_EVENT_ID = "created";
+
+  private final DeliveredEventIndex deliveredEventIndex;
+
+  private final JiraProjectCatalogue projectCatalogue;
+
+  /**
+   * Stages an issue goes through once fetched. Stages hand issues on through bounded queues, so
+   * a slow Symphony holds up the JIRA search rather than filling up memory, and route them by
+   * issue id, so the updates of any one issue are still delivered in order.
+   */
+  private final PipelineStage<IssueEvent> classifyStage, formatStage, deliverStage;
+
+  /**
+   * How long a poll waits for its issues to leave the pipeline before it fails
+   */
+  private final long pipelineDrainTimeoutMillis;
+
   public SymphonyJiraBot(IConfigurationProvider configurationProvider, IJiraClient jiraClient,
       ISymphonyClient symphonyClient) {
 
@@ -102,75 +154,510 @@ public class SymphonyJiraBot implements Runnable {
             configurationProvider.getJiraBaseURL(),
             configurationProvider.getJiraRefreshRateInSeconds());
 
-  }
+    pollingThreadCount = Math.max(1, configurationProvider.getJiraPollingThreadCount());
+    LOG.info("polling JIRA projects with " + pollingThreadCount + " thread(s)");
+    projectPollingExecutor = Executors.newFixedThreadPool(pollingThreadCount);
+
+    watermarkStore =
+        new ProjectWatermarkStore(new File(configurationProvider.getJiraWatermarkFilePath()));
+
+    deliveredEventIndex =
+        new DeliveredEventIndex(configurationProvider.getDeliveredEventIndexPath(),
+            configurationProvider.getDeliveredEventIndexCapacity());
 
+    projectCatalogue = new JiraProjectCatalogue(jiraClient,
+        configurationProvider.getJiraProjectCatalogueTtlInSeconds());
 
-  public void run() {
-    checkJiraForUpdatesAndPostInSymphony();
+    int pipelineDrainTimeoutInSeconds = configurationProvider.getPipelineDrainTimeoutInSeconds();
+    if (pipelineDrainTimeoutInSeconds <= 0) {
+      throw new IllegalArgumentException("pipeline drain timeout must be at least 1 second, got "
+          + pipelineDrainTimeoutInSeconds);
+    }
+    pipelineDrainTimeoutMillis = TimeUnit.SECONDS.toMillis(pipelineDrainTimeoutInSeconds);
+
+    // created back to front, as each stage forwards to the one after it
+    deliverStage = newStage("deliver", configurationProvider.getPipelineDeliverThreadCount(),
+        new Consumer<IssueEvent>() {
+          public void accept(IssueEvent event) {
+            deliverJiraIssue(event);
+          }
+        });
+    formatStage = newStage("format", configurationProvider.getPipelineFormatThreadCount(),
+        new Consumer<IssueEvent>() {
+          public void accept(IssueEvent event) {
+            formatJiraIssue(event);
+          }
+        });
+    classifyStage = newStage("classify", configurationProvider.getPipelineClassifyThreadCount(),
+        new Consumer<IssueEvent>() {
+          public void accept(IssueEvent event) {
+            classifyJiraIssue(event);
+          }
+        });
   }
 
-  private void checkJiraForUpdatesAndPostInSymphony() {
+  /**
+   * Returns the JIRA projects whose names are configured as projects of interest, from the cached
+   * project catalogue
+   */
+  public List<JiraProject> findJiraProjectsOfInterest() {
+
+    List<JiraProject> projectsOfInterest = new ArrayList<JiraProject>();
+    boolean projectMissing = false;
+    for (String projectName : configurationProvider.getJiraProjectsOfInterest()) {
+      JiraProject project = projectCatalogue.getProjectForName(projectName);
+      if (project == null) {
+        LOG.debug("JIRA project " + projectName + " is not in the project catalogue");
+        projectMissing = true;
+      } else {
+        projectsOfInterest.add(project);
+      }
+    }
 
-    LOG.debug("getting all JIRA Projects");
-    JiraProject[] jiraProjects = jiraClient.getAllProjects();
-    int numProjectsFound = jiraProjects == null ? 0 : jiraProjects.length;
-    LOG.debug("got " + numProjectsFound + " JIRA projects");
+    if (projectMissing) {
+      // the project may have been created or renamed since the catalogue was loaded
+      projectCatalogue.requestRefresh();
+    }
+    return projectsOfInterest;
+  }
 
-    if (numProjectsFound == 0) {
-      LOG.warn("no JIRA projects found...nothing to do");
+  /**
+   * Fetches, formats and delivers the updates of a JIRA project on the polling thread pool
+   *
+   * @return Number of updated issues found in the project
+   */
+  public CompletableFuture<Integer> pollJiraProject(final JiraProject project) {
+    return CompletableFuture.supplyAsync(new Supplier<Integer>() {
+      public Integer get() {
+        return processJiraProject(project);
+      }
+    }, projectPollingExecutor);
+  }
+
+  /**
+   * Delivers an issue pushed by a JIRA webhook, if it belongs to a project of interest
+   */
+  public void deliverJiraIssueFromWebhook(JiraIssue jiraIssue) {
+    if (!configurationProvider.getJiraProjectsOfInterest().contains(jiraIssue.getProjectName())) {
+      LOG.debug("ignoring webhook for " + jiraIssue.getKey() + " of JIRA project "
+          + jiraIssue.getProjectName());
       return;
     }
+    try {
+      // nobody waits for a webhook delivery, failures are only logged
+      submitJiraIssue(jiraIssue, new PollTracker(), null);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Fetches, formats and delivers the updates of several JIRA projects on the polling thread
+   * pool. The projects are split into one group per polling thread, and each group is searched
+   * with a single query, so combining the searches does not take away the pool's concurrency.
+   *
+   * @return Number of updated issues found, by project name
+   */
+  public CompletableFuture<Map<String, Integer>> pollJiraProjects(List<JiraProject> projects) {
+    int numGroups = Math.min(projects.size(), pollingThreadCount);
+    List<List<JiraProject>> groups = new ArrayList<List<JiraProject>>();
+    for (int i = 0; i < numGroups; i++) {
+      groups.add(new ArrayList<JiraProject>());
+    }
+    for (int i = 0; i < projects.size(); i++) {
+      groups.get(i % numGroups).add(projects.get(i));
+    }
+
+    final List<CompletableFuture<Map<String, Integer>>> groupPolls =
+        new ArrayList<CompletableFuture<Map<String, Integer>>>();
+    for (final List<JiraProject> group : groups) {
+      groupPolls.add(CompletableFuture.supplyAsync(new Supplier<Map<String, Integer>>() {
+        public Map<String, Integer> get() {
+          return processJiraProjects(group);
+        }
+      }, projectPollingExecutor));
+    }
+
+    return CompletableFuture.allOf(groupPolls.toArray(new CompletableFuture<?>[groupPolls.size()]))
+        .thenApply(new Function<Void, Map<String, Integer>>() {
+          public Map<String, Integer> apply(Void ignored) {
+            Map<String, Integer> numIssuesByProject = new HashMap<String, Integer>();
+            for (CompletableFuture<Map<String, Integer>> groupPoll : groupPolls) {
+              numIssuesByProject.putAll(groupPoll.join());
+            }
+            return numIssuesByProject;
+          }
+        });
+  }
+
+  /**
+   * Writes the delivered event index back to disk
+   */
+  public void flushDeliveredEventIndex() {
+    deliveredEventIndex.flush();
+    LOG.debug("delivered event index: " + deliveredEventIndex.getHits() + " duplicate(s) skipped, "
+        + deliveredEventIndex.getMisses() + " new event(s) so far");
+  }
+
+  /**
+   * Stages JIRA issues go through after being fetched, in order
+   */
+  public List<PipelineStage<?>> getPipelineStages() {
+    return Arrays.<PipelineStage<?>>asList(classifyStage, formatStage, deliverStage);
+  }
+
+  private void logPipelineStats() {
+    for (PipelineStage<?> stage : getPipelineStages()) {
+      LOG.debug(String.format("pipeline stage %s: %d queued, %d processed, %.1f/s",
+          stage.getName(), stage.getQueueDepth(), stage.getProcessedCount(),
+          stage.sampleThroughputPerSecond()));
+    }
+  }
+
+  private int processJiraProject(JiraProject project) {
+    return processJiraProjects(Collections.singletonList(project)).get(project.getName());
+  }
+
+  /**
+   * Fetches the updates of several JIRA projects with one search, waits for the pipeline to
+   * deliver them, and moves each project's watermark past the issues that were delivered
+   *
+   * @return Number of updated issues found, by project name
+   */
+  private Map<String, Integer> processJiraProjects(final List<JiraProject> projects) {
+
+    // without a watermark the client falls back to its default time window
+    Map<JiraProject, Date> watermarks = new LinkedHashMap<JiraProject, Date>();
+    final Map<String, ProjectProgress> progressByKey = new HashMap<String, ProjectProgress>();
+    for (JiraProject project : projects) {
+      Date watermark = watermarkStore.getWatermark(project.getKey());
+      LOG.debug("getting issues for JIRA project " + project.getName() + " updated after "
+          + watermark);
+      watermarks.put(project, watermark);
+      progressByKey.put(project.getKey(), new ProjectProgress());
+    }
+
+    final PollTracker tracker = new PollTracker();
+    int numIssues = 0;
+    RuntimeException failure = null;
+    try {
+      numIssues = jiraClient.forEachIssueForProjects(watermarks, new Consumer<JiraIssue>() {
+        public void accept(JiraIssue jiraIssue) {
+          ProjectProgress progress = progressByKey.get(jiraIssue.getProjectKey());
+          if (progress == null && projects.size() == 1) {
+            progress = progressByKey.get(projects.get(0).getKey());
+          }
+          if (progress != null) {
+            progress.issueFound(jiraIssue);
+          }
+
+          try {
+            submitJiraIssue(jiraIssue, tracker, progress);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while queueing " + jiraIssue.getKey(), e);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      failure = e;
+      for (ProjectProgress progress : progressByKey.values()) {
+        progress.searchFailed();
+      }
+    } finally {
+      tracker.sourceFinished();
+    }
 
-    boolean projectOfInterestFound = false;
-    for (JiraProject project : jiraProjects) {
-      if (configurationProvider.getJiraProjectsOfInterest().contains(project.getName())) {
-        processJiraProject(project);
-        projectOfInterestFound = true;
+    // wait for the issues still in the pipeline, even if the search failed half way through
+    try {
+      tracker.await(pipelineDrainTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = addFailure(failure,
+          new RuntimeException("interrupted while waiting for JIRA issues to be delivered", e));
+    } catch (RuntimeException e) {
+      failure = addFailure(failure, e);
+    }
+    logPipelineStats();
+
+    // even after a failure, so the issues that were delivered are not searched for again
+    Map<String, Integer> numIssuesByProject = new HashMap<String, Integer>();
+    for (JiraProject project : projects) {
+      ProjectProgress progress = progressByKey.get(project.getKey());
+      Date watermark = progress.getDeliveredWatermark();
+      if (watermark != null) {
+        watermarkStore.advance(project.getKey(), watermark);
       }
+      numIssuesByProject.put(project.getName(), progress.numIssues);
     }
 
-    if (!projectOfInterestFound) {
-      LOG.warn("non of the configured JIRA projects of interest were found in JIRA");
+    if (failure != null) {
+      throw failure;
     }
+    LOG.debug("processed " + numIssues + " issues for " + projects.size() + " JIRA project(s)");
+    return numIssuesByProject;
+  }
 
-    LOG.debug("finished for now...");
+  /**
+   * Returns the first failure of a poll, with any later one attached to it as suppressed
+   */
+  private static RuntimeException addFailure(RuntimeException failure,
+      RuntimeException nextFailure) {
+    if (failure == null) {
+      return nextFailure;
+    }
+    failure.addSuppressed(nextFailure);
+    return failure;
   }
 
-  private void processJiraProject(JiraProject project) {
+  /**
+   * Hands an issue to the pipeline, waiting while the classify stage is full
+   *
+   * @param progress Progress of the issue's project in the poll, or null if it was not polled
+   */
+  private void submitJiraIssue(JiraIssue jiraIssue, PollTracker tracker,
+      ProjectProgress progress) throws InterruptedException {
+    tracker.itemStarted();
+    try {
+      classifyStage.submit(new IssueEvent(jiraIssue, tracker, progress), jiraIssue.getId());
+    } catch (InterruptedException e) {
+      tracker.itemFailed(e);
+      throw e;
+    }
+  }
 
-    LOG.debug("getting issues for JIRA project " + project.getName());
-    ArrayList<JiraIssue> jiraIssues = jiraClient.getIssuesForProject(project);
-    LOG.debug("got " + jiraIssues.size() + " issues for JIRA project " + project.getName());
+  /**
+   * Passes an issue on to the next stage, or fails it if the pipeline is being shut down
+   */
+  private void forward(PipelineStage<IssueEvent> stage, IssueEvent event) {
+    try {
+      stage.submit(event, event.jiraIssue.getId());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      event.tracker.itemFailed(e);
+    }
+  }
 
-    for (JiraIssue jiraIssue : jiraIssues) {
+  /**
+   * Drops the updates that were already delivered, and the issues without any update worth
+   * posting
+   */
+  private void classifyJiraIssue(IssueEvent event) {
+    removeDeliveredHistories(event);
+    JiraIssue jiraIssue = event.jiraIssue;
+
+    if (event.newEventIds.isEmpty()) {
+      LOG.debug("already delivered every update of " + jiraIssue.getKey());
+      event.delivered();
+      return;
+    }
 
-      String lowPriorityIssueString = lowPriorityPlain.getPrettyIssueString(jiraIssue);
-      LOG.debug("Low priority issue: " + lowPriorityIssueString);
+    String lowPriorityIssueString = lowPriorityPlain.getPrettyIssueString(jiraIssue);
+    LOG.debug("Low priority issue: " + lowPriorityIssueString);
 
-      String highPriorityIssueString = highPriorityPlain.getPrettyIssueString(jiraIssue);
-      LOG.debug("high priority issue: " + highPriorityIssueString);
+    event.highPriorityIssueString = highPriorityPlain.getPrettyIssueString(jiraIssue);
+    LOG.debug("high priority issue: " + event.highPriorityIssueString);
 
-      if (highPriorityIssueString.replaceAll(" ", "").length() > 0) {
+    if (event.highPriorityIssueString.replaceAll(" ", "").length() > 0) {
+      forward(formatStage, event);
+    } else {
+      markDelivered(event);
+      event.delivered();
+    }
+  }
 
-        MessageML messageML = highPriorityMessageMl.getMessageMLForIssue(jiraIssue);
+  private void formatJiraIssue(IssueEvent event) {
+    event.messageML = highPriorityMessageMl.getMessageMLForIssue(event.jiraIssue);
+    forward(deliverStage, event);
+  }
 
-        if (symphonyRooms.isEmpty()) {
-          LOG.warn("no symphony rooms to post in, dropping message: " + messageML);
+  private void deliverJiraIssue(IssueEvent event) {
+    JiraIssue jiraIssue = event.jiraIssue;
+    MessageML messageML = event.messageML;
+
+    int failedRooms = 0;
+    if (symphonyRooms.isEmpty()) {
+      LOG.warn("no symphony rooms to post in, dropping message: " + messageML);
+    } else {
+
+      // for each symphony room, post the update
+      for (V2RoomDetail room : symphonyRooms) {
+        V2Message message = symphonyClient.sendMessage(room, messageML);
+        if (message == null) {
+          LOG.error("for JIRA issue: " + jiraIssue + " failed to send messageML: "
+              + messageML.toString());
+          failedRooms++;
         } else {
+          LOG.debug("successfully sent " + event.highPriorityIssueString);
+        }
+      }
+
+    }
 
-          // for each symphony room, post the update
-          for (V2RoomDetail room : symphonyRooms) {
-            V2Message message = symphonyClient.sendMessage(room, messageML);
-            if (message == null) {
-              LOG.error("for JIRA issue: " + jiraIssue + " failed to send messageML: "
-                  + messageML.toString());
-            } else {
-              LOG.debug("successfully sent " + highPriorityIssueString);
+    if (failedRooms > 0) {
+      // left unmarked, so the next poll delivers the update again
+      event.tracker.itemFailed(new RuntimeException("failed to post JIRA issue "
+          + jiraIssue.getKey() + " in " + failedRooms + " Symphony room(s)"));
+      return;
+    }
+    markDelivered(event);
+    event.delivered();
+  }
+
+  private void markDelivered(IssueEvent event) {
+    for (String eventId : event.newEventIds) {
+      deliveredEventIndex.markDelivered(event.jiraIssue.getId(), eventId);
+    }
+  }
+
+  /**
+   * Creates a pipeline stage whose failures are reported to the poll the failing issue belongs to
+   */
+  private PipelineStage<IssueEvent> newStage(String name, int numThreads,
+      final Consumer<IssueEvent> processor) {
+    LOG.info("running pipeline stage " + name + " with " + Math.max(1, numThreads)
+        + " thread(s)");
+    return new PipelineStage<IssueEvent>(name, numThreads,
+        configurationProvider.getPipelineQueueCapacity(), new Consumer<IssueEvent>() {
+          public void accept(IssueEvent event) {
+            try {
+              processor.accept(event);
+            } catch (Throwable e) {
+              LOG.error("failed to process JIRA issue " + event.jiraIssue.getKey(), e);
+              event.tracker.itemFailed(e);
             }
           }
+        });
+  }
 
-        }
+  /**
+   * Replaces the event's issue with a copy without the histories that were already delivered,
+   * and records the ids of the events left to deliver
+   */
+  private void removeDeliveredHistories(IssueEvent event) {
+    JiraIssue jiraIssue = event.jiraIssue;
+    JiraIssue.History[] histories = jiraIssue.getChangeLog().getHistories();
+    List<String> newEventIds = new ArrayList<String>();
+
+    if (histories.length == 0) {
+      if (!deliveredEventIndex.isDelivered(jiraIssue.getId(), CREATED_EVENT_ID)) {
+        newEventIds.add(CREATED_EVENT_ID);
       }
+      event.newEventIds = newEventIds;
+      return;
+    }
+
+    List<JiraIssue.History> newHistories = new ArrayList<JiraIssue.History>();
+    for (JiraIssue.History history : histories) {
+      if (!deliveredEventIndex.isDelivered(jiraIssue.getId(), history.getId())) {
+        newHistories.add(history);
+        newEventIds.add(history.getId());
+      }
+    }
+    if (newHistories.size() < histories.length) {
+      event.jiraIssue = jiraIssue.withChangeLog(jiraIssue.getChangeLog()
+          .withHistories(newHistories.toArray(new JiraIssue.History[newHistories.size()])));
+    }
+    event.newEventIds = newEventIds;
+  }
+
+  /**
+   * Issues found so far for one project of a poll, and which of them were delivered
+   */
+  private static class ProjectProgress {
+    private int numIssues;
+    private Date latestUpdateFound;
+    private boolean searchFailed;
+
+    /**
+     * Update times of the issues found but not delivered, with how many issues have each
+     */
+    private final TreeMap<Date, Integer> undelivered = new TreeMap<Date, Integer>();
+    private final TreeSet<Date> delivered = new TreeSet<Date>();
+
+    private synchronized void issueFound(JiraIssue jiraIssue) {
+      numIssues++;
+      Date updated = jiraIssue.getUpdated();
+      if (latestUpdateFound == null || updated.after(latestUpdateFound)) {
+        latestUpdateFound = updated;
+      }
+      Integer count = undelivered.get(updated);
+      undelivered.put(updated, count == null ? 1 : count + 1);
+    }
+
+    private synchronized void issueDelivered(JiraIssue jiraIssue) {
+      Date updated = jiraIssue.getUpdated();
+      Integer count = undelivered.get(updated);
+      if (count != null && count > 1) {
+        undelivered.put(updated, count - 1);
+      } else {
+        undelivered.remove(updated);
+      }
+      delivered.add(updated);
+    }
+
+    /**
+     * Called when the search stopped early. Issues it did not get to may have been updated at the
+     * same time as the last one found, so that time stays undelivered even once the issues found
+     * at that time are delivered.
+     */
+    private synchronized void searchFailed() {
+      searchFailed = true;
+    }
+
+    /**
+     * Latest update time the project's watermark can move to: that of the last delivered issue
+     * updated before any issue that failed or is still in the pipeline, and before the last update
+     * time found by a search that failed
+     *
+     * @return The watermark, or null if it must stay where it is
+     */
+    private synchronized Date getDeliveredWatermark() {
+      Date firstUndelivered = undelivered.isEmpty() ? null : undelivered.firstKey();
+      if (searchFailed && latestUpdateFound != null
+          && (firstUndelivered == null || latestUpdateFound.before(firstUndelivered))) {
+        firstUndelivered = latestUpdateFound;
+      }
+      if (firstUndelivered == null) {
+        return delivered.isEmpty() ? null : delivered.last();
+      }
+      return delivered.lower(firstUndelivered);
+    }
+  }
+
+  /**
+   * A JIRA issue on its way through the pipeline, with what each stage made of it
+   */
+  private static class IssueEvent {
+    /**
+     * The issue, replaced by a copy holding only its undelivered histories once classified
+     */
+    private JiraIssue jiraIssue;
+    private final PollTracker tracker;
+    private final ProjectProgress progress;
+    private List<String> newEventIds;
+    private String highPriorityIssueString;
+    private MessageML messageML;
+
+    private IssueEvent(JiraIssue jiraIssue, PollTracker tracker, ProjectProgress progress) {
+      this.jiraIssue = jiraIssue;
+      this.tracker = tracker;
+      this.progress = progress;
+    }
+
+    /**
+     * Called once the issue left the pipeline with all its updates delivered or not worth posting
+     */
+    private void delivered() {
+      if (progress != null) {
+        progress.issueDelivered(jiraIssue);
+      }
+      tracker.itemFinished();
+    }
+
+    @Override
+    public String toString() {
+      return jiraIssue.getKey();
     }
   }
 }
@@ -30,12 +30,15 @@ import com.symphony.jirabot.clients.JiraOauthClient;
 import com.symphony.jirabot.clients.SymphonyClient;
 import com.symphony.jirabot.configurations.IConfigurationProvider;
 import com.symphony.jirabot.configurations.SimpleConfigurationProvider;
+import com.symphony.jirabot.models.ChangeClassifier;
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.webhooks.JiraWebhookListener;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.io.File;
+import java.util.function.Consumer;
 
 /**
  *
@@ -53,6 +56,13 @@ public class SymphonyJiraBotApp {
         // TODO make configuration provider determined by args, rather than hardwired as it is here
         IConfigurationProvider configurationProvider = new SimpleConfigurationProvider();
 
+        String changeClassificationFile = configurationProvider.getChangeClassificationFile();
+        if (changeClassificationFile != null) {
+            ChangeClassifier.setDefault(
+                ChangeClassifier.withRulesFrom(new File(changeClassificationFile)));
+            LOG.info("classifying JIRA changes with rules from {}", changeClassificationFile);
+        }
+
         ISymphonyClient symphonyClient = new SymphonyClient(configurationProvider);
 
         IJiraClient jiraClient = new JiraOauthClient(configurationProvider);
@@ -60,12 +70,26 @@ public class SymphonyJiraBotApp {
         SymphonyJiraBot symphonyJiraBot =
             new SymphonyJiraBot(configurationProvider, jiraClient, symphonyClient);
 
-        LOG.info("starting bot with jiraBaseUrl={}, symphonyBaseUrl={}, refreshIntervalInSeconds={}",
+        LOG.info("starting bot with jiraBaseUrl={}, symphonyBaseUrl={}, "
+            + "refreshIntervalInSeconds={}-{}",
             configurationProvider.getJiraBaseURL(), configurationProvider.getSymphonyBaseURL(),
-            configurationProvider.getJiraRefreshRateInSeconds());
+            configurationProvider.getJiraMinRefreshRateInSeconds(),
+            configurationProvider.getJiraMaxRefreshRateInSeconds());
+
+        if (configurationProvider.isJiraWebhookEnabled()) {
+            new JiraWebhookListener(configurationProvider.getJiraWebhookBindAddress(),
+                configurationProvider.getJiraWebhookPort(),
+                configurationProvider.getJiraWebhookPath(),
+                configurationProvider.getJiraWebhookSecret(),
+                configurationProvider.getJiraWebhookQueueCapacity(),
+                configurationProvider.getJiraWebhookMaxBodyBytes(), new Consumer<JiraIssue>() {
+                    public void accept(JiraIssue jiraIssue) {
+                        symphonyJiraBot.deliverJiraIssueFromWebhook(jiraIssue);
+                    }
+                }).start();
+        }
 
-        Executors.newScheduledThreadPool(1).scheduleWithFixedDelay(symphonyJiraBot, 0,
-            configurationProvider.getJiraRefreshRateInSeconds(), TimeUnit.SECONDS);
+        new AdaptiveProjectPollScheduler(configurationProvider, symphonyJiraBot).start();
 
         LOG.info("bot started");
 
@@ -0,0 +1,62 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraIssuePage;
+import com.symphony.jirabot.models.JiraProject;
+import com.symphony.jirabot.models.JiraUser;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous companion of IJiraClient. Each call returns at once, with a future that completes
+ * once JIRA answered.
+ */
+public interface IAsyncJiraClient {
+
+  CompletableFuture<JiraUser> getJiraUserForEmailAddress(String emailAddress);
+
+  CompletableFuture<JiraProject[]> getAllProjects();
+
+  /**
+   * Returns one page of the issues of a project, with their complete histories, that were updated
+   * after updatedSince (null for the default time window). Paging with startAt skips an issue
+   * whenever one on an earlier page is updated in between; getIssuesForProject does not.
+   */
+  CompletableFuture<JiraIssuePage> getIssuePage(JiraProject project, Date updatedSince,
+      int startAt);
+
+  /**
+   * Returns the issues of a project, with their complete histories, that were updated after
+   * updatedSince (null for the default time window), oldest update first
+   */
+  CompletableFuture<List<JiraIssue>> getIssuesForProject(JiraProject project, Date updatedSince);
+
+  void close();
+}
@@ -29,6 +29,9 @@ import com.symphony.jirabot.models.JiraProject;
 import com.symphony.jirabot.models.JiraUser;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface IJiraClient {
 
@@ -39,4 +42,28 @@ public interface IJiraClient {
   JiraProject[] getAllProjects();
 
   ArrayList<JiraIssue> getIssuesForProject(JiraProject project);
+
+  /**
+   * Returns the issues of a project, with their histories, that were updated after updatedSince
+   */
+  ArrayList<JiraIssue> getIssuesForProject(JiraProject project, Date updatedSince);
+
+  /**
+   * Hands the issues of a project that were updated after updatedSince to the handler one at a
+   * time, across as many search pages as needed. A null updatedSince means the client's default
+   * time window. The handler is called from the calling thread, once per issue, oldest update
+   * first.
+   *
+   * @return Number of issues handed to the handler
+   */
+  int forEachIssueForProject(JiraProject project, Date updatedSince, Consumer<JiraIssue> handler);
+
+  /**
+   * Like forEachIssueForProject, but searches all the given projects with one paged query, each
+   * project with its own updatedSince (null for the default time window)
+   *
+   * @return Number of issues handed to the handler
+   */
+  int forEachIssueForProjects(Map<JiraProject, Date> updatedSinceByProject,
+      Consumer<JiraIssue> handler);
 }
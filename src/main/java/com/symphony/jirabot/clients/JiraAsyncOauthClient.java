@@ -0,0 +1,110 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.configurations.IConfigurationProvider;
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraIssuePage;
+import com.symphony.jirabot.models.JiraProject;
+import com.symphony.jirabot.models.JiraUser;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Makes the requests of a JiraOauthClient asynchronously, so they go through the same pooled
+ * connections, signing, rate limits, retries, circuit breakers and response cache.
+ *
+ * Requests run on as many threads as there are connections to JIRA: a request beyond that would
+ * only wait for a connection, so a non-blocking HTTP client would not keep more of them in flight.
+ */
+public class JiraAsyncOauthClient implements IAsyncJiraClient {
+
+  private final JiraOauthClient client;
+  private final ExecutorService requestExecutor;
+
+  public JiraAsyncOauthClient(JiraOauthClient client,
+      IConfigurationProvider configurationProvider) {
+    this.client = client;
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    this.requestExecutor = Executors.newFixedThreadPool(
+        Math.max(1, configurationProvider.getJiraMaxConnectionsPerRoute()), new ThreadFactory() {
+          public Thread newThread(Runnable runnable) {
+            Thread thread =
+                new Thread(runnable, "jira-async-request-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  public CompletableFuture<JiraUser> getJiraUserForEmailAddress(final String emailAddress) {
+    return CompletableFuture.supplyAsync(new Supplier<JiraUser>() {
+      public JiraUser get() {
+        return client.getJiraUserForEmailAddress(emailAddress);
+      }
+    }, requestExecutor);
+  }
+
+  public CompletableFuture<JiraProject[]> getAllProjects() {
+    return CompletableFuture.supplyAsync(new Supplier<JiraProject[]>() {
+      public JiraProject[] get() {
+        return client.getAllProjects();
+      }
+    }, requestExecutor);
+  }
+
+  public CompletableFuture<JiraIssuePage> getIssuePage(final JiraProject project,
+      final Date updatedSince, final int startAt) {
+    return CompletableFuture.supplyAsync(new Supplier<JiraIssuePage>() {
+      public JiraIssuePage get() {
+        return client.getIssuePage(project, updatedSince, startAt);
+      }
+    }, requestExecutor);
+  }
+
+  public CompletableFuture<List<JiraIssue>> getIssuesForProject(final JiraProject project,
+      final Date updatedSince) {
+    return CompletableFuture.supplyAsync(new Supplier<List<JiraIssue>>() {
+      public List<JiraIssue> get() {
+        return client.getIssuesForProject(project, updatedSince);
+      }
+    }, requestExecutor);
+  }
+
+  /**
+   * Stops taking requests. The JiraOauthClient is left open for its other users.
+   */
+  public void close() {
+    requestExecutor.shutdown();
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+/**
+ * Kinds of JIRA REST API requests, each rate limited on its own
+ */
+public enum JiraEndpointClass {
+  SEARCH, CHANGELOG, USER, PROJECT, OTHER;
+
+  /**
+   * Returns the class of a request from its path below the REST API base URL, e.g. search?jql=...
+   */
+  public static JiraEndpointClass forPath(String path) {
+    if (path.startsWith("search")) {
+      return SEARCH;
+    } else if (path.startsWith("issue/") && path.contains("/changelog")) {
+      return CHANGELOG;
+    } else if (path.startsWith("user") || path.startsWith("myself")) {
+      return USER;
+    } else if (path.startsWith("project")) {
+      return PROJECT;
+    }
+    return OTHER;
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.configurations.IConfigurationProvider;
+
+import net.oauth.client.httpclient4.HttpClientPool;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single pooled HTTP client shared by every request to JIRA, so connections (and their TLS
+ * sessions) are kept alive and reused instead of being set up for each request.
+ *
+ * Responses are not decompressed here: OAuthClient asks for gzip (see OAuthSigningContext) and
+ * decodes it.
+ */
+public class JiraHttpTransport implements HttpClientPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraHttpTransport.class);
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final CloseableHttpClient httpClient;
+  private final AtomicLong bytesReceived = new AtomicLong();
+
+  private final ScheduledExecutorService idleConnectionReaper =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "jira-idle-connection-reaper");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  /**
+   * @throws IllegalArgumentException If the keep-alive is not positive. HttpClient would keep
+   * connections open forever with 0, and the idle connection reaper cannot run that often.
+   */
+  public JiraHttpTransport(IConfigurationProvider configurationProvider) {
+    int maxConnections = Math.max(1, configurationProvider.getJiraMaxConnectionsPerRoute());
+    int keepAliveInSeconds = configurationProvider.getJiraKeepAliveInSeconds();
+    if (keepAliveInSeconds <= 0) {
+      throw new IllegalArgumentException(
+          "JIRA keep-alive must be at least 1 second, got " + keepAliveInSeconds);
+    }
+    final long keepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveInSeconds);
+
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setDefaultMaxPerRoute(maxConnections);
+    connectionManager.setMaxTotal(maxConnections);
+
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectTimeout(configurationProvider.getJiraConnectTimeoutInMillis())
+        .setConnectionRequestTimeout(configurationProvider.getJiraConnectTimeoutInMillis())
+        .setSocketTimeout(configurationProvider.getJiraReadTimeoutInMillis())
+        .build();
+
+    httpClient = HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+          public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+            // honour a shorter timeout sent by JIRA in its Keep-Alive header
+            HeaderElementIterator elements =
+                new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (elements.hasNext()) {
+              HeaderElement element = elements.nextElement();
+              if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                try {
+                  return Math.min(keepAliveMillis,
+                      TimeUnit.SECONDS.toMillis(Long.parseLong(element.getValue())));
+                } catch (NumberFormatException e) {
+                  LOG.debug("ignoring Keep-Alive timeout " + element.getValue());
+                }
+              }
+            }
+            return keepAliveMillis;
+          }
+        })
+        .addInterceptorLast(new HttpResponseInterceptor() {
+          public void process(HttpResponse response, HttpContext context) {
+            HttpEntity entity = response.getEntity();
+            if (entity != null) {
+              response.setEntity(new CountingEntity(entity));
+            }
+          }
+        })
+        .disableContentCompression()
+        .build();
+
+    // connections JIRA closed while idle would otherwise only be noticed when reused
+    idleConnectionReaper.scheduleWithFixedDelay(new Runnable() {
+      public void run() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS);
+      }
+    }, keepAliveMillis, keepAliveMillis, TimeUnit.MILLISECONDS);
+
+    LOG.info("keeping up to " + maxConnections + " connection(s) to JIRA alive for "
+        + keepAliveInSeconds + "s");
+  }
+
+  public HttpClient getHttpClient(URL server) {
+    return httpClient;
+  }
+
+  /**
+   * Leased, available and pending connections of the pool
+   */
+  public PoolStats getPoolStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * Bytes of response bodies received so far, still compressed if JIRA compressed them
+   */
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  public void close() {
+    idleConnectionReaper.shutdownNow();
+    try {
+      httpClient.close();
+    } catch (IOException e) {
+      LOG.warn("failed to close JIRA connections", e);
+    }
+  }
+
+  /**
+   * Adds the bytes read from a response body to bytesReceived
+   */
+  private class CountingEntity extends HttpEntityWrapper {
+
+    private CountingEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new FilterInputStream(super.getContent()) {
+        @Override
+        public int read() throws IOException {
+          int b = super.read();
+          if (b >= 0) {
+            bytesReceived.incrementAndGet();
+          }
+          return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          int numRead = super.read(buffer, offset, length);
+          if (numRead > 0) {
+            bytesReceived.addAndGet(numRead);
+          }
+          return numRead;
+        }
+      };
+    }
+  }
+}
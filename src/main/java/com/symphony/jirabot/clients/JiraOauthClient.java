@@ -26,54 +26,138 @@ package com.symphony.jirabot.clients;
 
 import com.symphony.jirabot.configurations.IConfigurationProvider;
 import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraIssueDecoder;
+import com.symphony.jirabot.models.JiraIssuePage;
 import com.symphony.jirabot.models.JiraProject;
 import com.symphony.jirabot.models.JiraUser;
+import com.symphony.jirabot.models.JiraUserPool;
+import com.symphony.jirabot.ratelimit.AdaptiveConcurrencyLimiter;
+import com.symphony.jirabot.ratelimit.TokenBucket;
+import com.symphony.jirabot.retry.CircuitBreaker;
+import com.symphony.jirabot.retry.RetryPolicy;
+import com.symphony.jirabot.stores.JiraResponseCache;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import net.oauth.OAuth;
-import net.oauth.OAuthAccessor;
-import net.oauth.OAuthConsumer;
 import net.oauth.OAuthException;
 import net.oauth.OAuthMessage;
-import net.oauth.OAuthServiceProvider;
+import net.oauth.OAuthProblemException;
+import net.oauth.ParameterStyle;
 import net.oauth.client.OAuthClient;
 import net.oauth.client.httpclient4.HttpClient4;
-import net.oauth.signature.RSA_SHA1;
-import org.json.JSONArray;
-import org.json.JSONException;
+import org.apache.http.pool.PoolStats;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Communicates with JIRA via OAUTH
  *
- * TODO add single reauthentication attempt on unauthorized API call
- *
  * Created by ryan.dsouza on 5/26/16
  */
 public class JiraOauthClient implements IJiraClient {
 
   private final Logger LOG = LoggerFactory.getLogger(JiraOauthClient.class);
 
-  private static final String OAUTH_PATH = "/plugins/servlet/oauth/";
+  /**
+   * Keeps multi-project search URLs well below the 4 to 8 KB that JIRA and the proxies in front
+   * of it accept: the encoded project list of a search stays under this many characters
+   */
+  private static final int MAX_ENCODED_PROJECT_LIST_LENGTH = 2000;
+
+  /**
+   * Most histories JIRA returns from an issue's changelog endpoint at once
+   */
+  private static final int MAX_CHANGELOG_PAGE_SIZE = 100;
+
+  private static final List<Map.Entry<String, String>> NO_HEADERS =
+      Collections.<Map.Entry<String, String>>emptyList();
 
   private final IConfigurationProvider configurationProvider;
-  private final OAuthAccessor accessor;
+  private final OAuthSigningContext signingContext;
   private final ObjectMapper objectMapper;
+  private final JiraIssueDecoder issueDecoder = new JiraIssueDecoder();
+  private final JiraHttpTransport transport;
+  private final OAuthClient oauthClient;
+
+  private final RetryPolicy retryPolicy;
+  private final Map<JiraEndpointClass, TokenBucket> rateLimiters =
+      new EnumMap<JiraEndpointClass, TokenBucket>(JiraEndpointClass.class);
+  private final Map<JiraEndpointClass, AdaptiveConcurrencyLimiter> concurrencyLimiters =
+      new EnumMap<JiraEndpointClass, AdaptiveConcurrencyLimiter>(JiraEndpointClass.class);
+
+  /**
+   * Keeps the requests of all endpoint classes together within the connection pool, so none of
+   * them times out waiting for a connection
+   */
+  private final Semaphore connectionPermits;
+  private final ConcurrentMap<String, CircuitBreaker> circuitBreakersByHost =
+      new ConcurrentHashMap<String, CircuitBreaker>();
 
   private final String jiraRestApiBaseUrl;
 
   private Date startDate;
 
+  private final ExecutorService changeLogExecutor;
+  private final AtomicInteger numIssuesWithTruncatedChangeLog = new AtomicInteger();
+  private final AtomicLong changeLogFetchMillis = new AtomicLong();
+  private final AtomicLong searchBytesRead = new AtomicLong();
+
+  /**
+   * Comma separated issue fields searches ask for, so JIRA leaves out every field the bot does not
+   * read
+   */
+  private final String issueFields;
+
+  private final JiraUserCache userCache;
+  private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+  private final JiraResponseCache responseCache;
+  private final AtomicLong responseCacheHits = new AtomicLong();
+  private final AtomicLong responseCacheRevalidations = new AtomicLong();
+  private final AtomicLong responseCacheMisses = new AtomicLong();
+
   public JiraOauthClient(IConfigurationProvider configurationProvider) {
 
     this.configurationProvider = configurationProvider;
@@ -82,16 +166,47 @@ public class JiraOauthClient implements IJiraClient {
 
     this.updateStartAndEndDate();
     this.objectMapper = new ObjectMapper();
+    this.changeLogExecutor = Executors.newFixedThreadPool(
+        Math.max(1, configurationProvider.getMaxConcurrentChangeLogFetches()));
+
+    this.signingContext = OAuthSigningContext.forJira(configurationProvider);
+    this.issueFields = getIssueFields(configurationProvider);
+    LOG.info("searching JIRA for issue fields " + issueFields);
+
+    this.transport = new JiraHttpTransport(configurationProvider);
+    this.oauthClient = new OAuthClient(new HttpClient4(transport));
 
-    OAuthServiceProvider serviceProvider = new OAuthServiceProvider(getRequestTokenUrl(),
-        getAuthorizeUrl(), getAccessTokenUrl());
+    this.userCache = new JiraUserCache(new Function<String, JiraUser>() {
+      public JiraUser apply(String emailAddress) {
+        return findJiraUserForEmailAddress(emailAddress);
+      }
+    }, configurationProvider.getJiraUserCacheCapacity(),
+        configurationProvider.getJiraUserCacheTtlInSeconds(),
+        configurationProvider.getJiraUserCacheNegativeTtlInSeconds());
+
+    // each class adapts to its own latency, as a search takes far longer than a user lookup
+    for (JiraEndpointClass endpointClass : JiraEndpointClass.values()) {
+      String name = endpointClass.name().toLowerCase();
+      rateLimiters.put(endpointClass, new TokenBucket(name,
+          configurationProvider.getJiraRequestsPerSecond(endpointClass),
+          configurationProvider.getJiraRequestBurst(endpointClass)));
+      concurrencyLimiters.put(endpointClass, new AdaptiveConcurrencyLimiter(name,
+          configurationProvider.getJiraMinConcurrentRequests(),
+          configurationProvider.getJiraInitialConcurrentRequests(),
+          configurationProvider.getJiraMaxConnectionsPerRoute(),
+          configurationProvider.getJiraLatencyTolerance()));
+    }
+    this.connectionPermits =
+        new Semaphore(Math.max(1, configurationProvider.getJiraMaxConnectionsPerRoute()), true);
 
-    OAuthConsumer consumer = new OAuthConsumer(configurationProvider.getJiraCallback(),
-        configurationProvider.getJiraConsumerKey(), null, serviceProvider);
-    consumer.setProperty(RSA_SHA1.PRIVATE_KEY, configurationProvider.getJiraConsumerPrivateKey());
-    consumer.setProperty(OAuth.OAUTH_SIGNATURE_METHOD, OAuth.RSA_SHA1);
+    String responseCacheDirectory = configurationProvider.getJiraResponseCacheDirectory();
+    this.responseCache = new JiraResponseCache(configurationProvider.getJiraResponseCacheMaxBytes(),
+        responseCacheDirectory == null ? null : new File(responseCacheDirectory),
+        configurationProvider.getJiraResponseCacheMaxBytesOnDisk());
 
-    this.accessor = new OAuthAccessor(consumer);
+    this.retryPolicy = new RetryPolicy(configurationProvider.getJiraMaxRequestAttempts(),
+        configurationProvider.getJiraRetryBaseDelayInMillis(),
+        configurationProvider.getJiraRetryMaxDelayInMillis());
   }
 
   /**
@@ -101,7 +216,9 @@ public class JiraOauthClient implements IJiraClient {
     LOG.debug("attempting JIRA authentication...");
     String urlEndpoint = jiraRestApiBaseUrl + "myself";
 
-    String jsonResponse = this.makeAuthenticatedRequest(urlEndpoint, null, "GET");
+    // always revalidated, so the credentials are checked even when the response is cached, and
+    // kept in memory only, as it holds the bot's email address
+    String jsonResponse = this.makeGetRequest(urlEndpoint, null, 0, false);
     JSONObject jsonObject = new JSONObject(jsonResponse);
     if (jsonObject.has("self") && jsonObject.has("name") && jsonObject.has("emailAddress")) {
       LOG.debug("successfully authenticated");
@@ -118,17 +235,29 @@ public class JiraOauthClient implements IJiraClient {
    * @return Associated com.symphony.jirabot.models.JiraUser
    */
   public JiraUser getJiraUserForEmailAddress(final String emailAddress) {
+    JiraUser user = userCache.get(emailAddress);
+    if (user == null) {
+      throw new RuntimeException("No users found for email address: " + emailAddress);
+    }
+    return user;
+  }
+
+  /**
+   * Looks up the user with an email address in JIRA
+   *
+   * @return The user, or null if there is none
+   */
+  private JiraUser findJiraUserForEmailAddress(String emailAddress) {
 
     String urlEndpoint = jiraRestApiBaseUrl + "user/search?";
 
-    String parameters = "username=" + emailAddress;
+    String parameters = "username=" + encodeQueryParameter(emailAddress);
     parameters += "&includeInactive=true";
     parameters += "&includeActive=true";
 
-    String jsonResponse = "";
-
     try {
-      jsonResponse = this.makeAuthenticatedRequest(urlEndpoint, parameters, "GET");
+      // userCache is the only cache of users, concurrent lookups still share the request
+      String jsonResponse = this.makeGetRequest(urlEndpoint, parameters, -1, false);
       JiraUser[] users = objectMapper.readValue(jsonResponse, JiraUser[].class);
 
       //TODO: Try different email format - class for finding com.symphony.jirabot.models.JiraUser
@@ -141,8 +270,15 @@ public class JiraOauthClient implements IJiraClient {
       throw new RuntimeException("Failed to make an find user with address: " + emailAddress, e);
     }
 
-    LOG.warn("No users found", jsonResponse);
-    throw new RuntimeException("No users found: " + jsonResponse);
+    LOG.warn("No users found for email address " + emailAddress);
+    return null;
+  }
+
+  /**
+   * Cache of the users looked up by email address
+   */
+  public JiraUserCache getUserCache() {
+    return userCache;
   }
 
   /**
@@ -151,19 +287,25 @@ public class JiraOauthClient implements IJiraClient {
    * @return All JiraProjects
    */
   public JiraProject[] getAllProjects() {
-    try {
-      String urlEndpoint = jiraRestApiBaseUrl + "project?";
-      String parameters = "expand=description,url,projectKeys";
-      parameters += "&maxResults=" + configurationProvider.getMaxResultsForGettingJiraProjects();
+    final String urlEndpoint = jiraRestApiBaseUrl + "project?";
+    String parameters = "expand=description,url,projectKeys";
+    parameters += "&maxResults=" + configurationProvider.getMaxResultsForGettingJiraProjects();
 
-      String jsonResponse = this.makeAuthenticatedRequest(urlEndpoint, parameters, "GET");
-      JiraProject[] projects = this.objectMapper.readValue(jsonResponse, JiraProject[].class);
-
-      return projects;
-    } catch (IOException exception) {
-      LOG.error("ERROR MAPPING PROJECTS", exception);
-      throw new RuntimeException("Error mapping projects");
-    }
+    // concurrent callers share the parsed projects, not just the response
+    final String projectParameters = parameters;
+    return requestCoalescer.execute("JiraProject[] GET " + urlEndpoint + parameters,
+        new Supplier<JiraProject[]>() {
+          public JiraProject[] get() {
+            try {
+              String jsonResponse =
+                  makeAuthenticatedRequest(urlEndpoint, projectParameters, "GET");
+              return objectMapper.readValue(jsonResponse, JiraProject[].class);
+            } catch (IOException exception) {
+              LOG.error("ERROR MAPPING PROJECTS", exception);
+              throw new RuntimeException("Error mapping projects");
+            }
+          }
+        });
   }
 
   /**
@@ -173,53 +315,495 @@ public class JiraOauthClient implements IJiraClient {
    * @return Relevant issues for that com.symphony.jirabot.models.JiraProject
    */
   public ArrayList<JiraIssue> getIssuesForProject(JiraProject project) {
+    return getIssuesForProject(project, this.startDate);
+  }
 
-    ArrayList<JiraIssue> jiraIssues = new ArrayList<JiraIssue>();
+  /**
+   * Returns the issues for that com.symphony.jirabot.models.JiraProject updated after updatedSince,
+   * keeping only the histories created after updatedSince
+   *
+   * @param project
+   * @param updatedSince
+   * @return Relevant issues for that com.symphony.jirabot.models.JiraProject
+   */
+  public ArrayList<JiraIssue> getIssuesForProject(JiraProject project, Date updatedSince) {
+    final ArrayList<JiraIssue> jiraIssues = new ArrayList<JiraIssue>();
+    this.forEachIssueForProject(project, updatedSince, new Consumer<JiraIssue>() {
+      public void accept(JiraIssue issue) {
+        synchronized (jiraIssues) {
+          jiraIssues.add(issue);
+        }
+      }
+    });
+    return jiraIssues;
+  }
+
+  /**
+   * Hands the relevant issues for that com.symphony.jirabot.models.JiraProject to the handler one
+   * at a time, following the search pages until JIRA has no more results. Each page is parsed as
+   * a stream, so only the issue being handled is held in memory. Issues whose changelog was
+   * truncated by JIRA are completed concurrently, but every issue is handed over from the calling
+   * thread in the order JIRA returned it.
+   *
+   * @param project
+   * @param updatedSince Only issues and histories after this date are handled, null for the
+   * default time window
+   * @param handler
+   * @return Number of issues handed to the handler
+   */
+  public int forEachIssueForProject(JiraProject project, Date updatedSince,
+      Consumer<JiraIssue> handler) {
+    return this.forEachIssueForProjects(Collections.singletonMap(project, updatedSince), handler);
+  }
+
+  /**
+   * Like forEachIssueForProject, but searches several projects with a single query. Each issue is
+   * matched back to its project through its project field and filtered with that project's date.
+   *
+   * @param updatedSinceByProject Projects to search, each with the date after which its issues
+   * and histories are handled (null for the default time window)
+   * @param handler
+   * @return Number of issues handed to the handler
+   */
+  public int forEachIssueForProjects(Map<JiraProject, Date> updatedSinceByProject,
+      Consumer<JiraIssue> handler) {
+
+    List<JiraProject> projects = new ArrayList<JiraProject>(updatedSinceByProject.keySet());
+    int issuesHandled = 0;
+    AtomicLong bytesRead = new AtomicLong();
+
+    for (List<JiraProject> searchedProjects : splitForSearch(projects)) {
+
+      final Map<String, Date> updatedSinceByProjectKey = new HashMap<String, Date>();
+      Date oldestUpdatedSince = null;
+      StringBuilder projectKeys = new StringBuilder();
+      for (JiraProject project : searchedProjects) {
+        Date updatedSince = updatedSinceByProject.get(project);
+        if (updatedSince == null) {
+          updatedSince = this.startDate;
+        }
+        updatedSinceByProjectKey.put(project.getKey(), updatedSince);
+        if (oldestUpdatedSince == null || updatedSince.before(oldestUpdatedSince)) {
+          oldestUpdatedSince = updatedSince;
+        }
+        if (projectKeys.length() > 0) {
+          projectKeys.append(',');
+        }
+        projectKeys.append('"').append(project.getKey()).append('"');
+      }
+
+      final Date searchUpdatedSince = oldestUpdatedSince;
+      JiraIssueDecoder.Cutoff cutoff = new JiraIssueDecoder.Cutoff() {
+        public Date getUpdatedSince(String projectKey) {
+          Date updatedSince = updatedSinceByProjectKey.get(projectKey);
+          return updatedSince == null ? searchUpdatedSince : updatedSince;
+        }
+      };
+
+      issuesHandled += this.forEachIssueForJql("project in (" + projectKeys + ")",
+          searchUpdatedSince, cutoff, handler, bytesRead);
+    }
+
+    LOG.info("searched " + projects.size() + " JIRA project(s): " + issuesHandled
+        + " updated issue(s), " + bytesRead.get() + " bytes of search results");
+    LOG.debug("JIRA rate limiters: " + rateLimiters.values() + ", concurrency limits: "
+        + concurrencyLimiters.values() + ", "
+        + requestCoalescer.getSaved() + " request(s) saved by sharing identical ones, "
+        + responseCacheHits.get() + " cached response(s) reused and "
+        + responseCacheRevalidations.get() + " revalidated; JIRA users: " + JiraUserPool.SHARED);
+    return issuesHandled;
+  }
+
+  /**
+   * Splits projects into as few searches as MAX_ENCODED_PROJECT_LIST_LENGTH allows
+   */
+  private static List<List<JiraProject>> splitForSearch(List<JiraProject> projects) {
+    List<List<JiraProject>> searches = new ArrayList<List<JiraProject>>();
+    List<JiraProject> search = new ArrayList<JiraProject>();
+    int encodedLength = 0;
+    for (JiraProject project : projects) {
+      // the quotes and the comma around the key are encoded as %22 and %2C
+      int encodedKeyLength = encodeQueryParameter(project.getKey()).length() + 9;
+      if (!search.isEmpty()
+          && encodedLength + encodedKeyLength > MAX_ENCODED_PROJECT_LIST_LENGTH) {
+        searches.add(search);
+        search = new ArrayList<JiraProject>();
+        encodedLength = 0;
+      }
+      search.add(project);
+      encodedLength += encodedKeyLength;
+    }
+    if (!search.isEmpty()) {
+      searches.add(search);
+    }
+    return searches;
+  }
+
+  /**
+   * Pages through the issues matching a JQL clause that were updated after updatedSince, oldest
+   * first. Rather than moving startAt forward, which skips an issue whenever one on an earlier
+   * page is updated in between, each page searches again from the last update time seen and
+   * drops the issues already handled at that time.
+   */
+  private int forEachIssueForJql(String clause, Date updatedSince,
+      JiraIssueDecoder.Cutoff cutoff, Consumer<JiraIssue> handler, AtomicLong bytesRead) {
 
     String urlEndpoint = jiraRestApiBaseUrl + "search?";
+    String parameters = getSearchParameters();
+
+    SearchCursor cursor = new SearchCursor(updatedSince);
+    int issuesHandled = 0;
+    while (true) {
+      String jql = clause + " AND updatedDate " + (cursor.inclusive ? ">= " : "> ")
+          + cursor.updatedSince.getTime() + " ORDER BY updated ASC";
+      Date pageUpdatedSince = cursor.updatedSince;
+
+      SearchPage page = this.readSearchPage(urlEndpoint,
+          "jql=" + encodeQueryParameter(jql) + parameters + "&startAt=" + cursor.startAt,
+          cutoff, cursor, handler);
+      issuesHandled += page.issuesHandled;
+      bytesRead.addAndGet(page.bytesRead);
+      searchBytesRead.addAndGet(page.bytesRead);
+
+      if (page.issuesRead == 0 || cursor.startAt + page.issuesRead >= page.total) {
+        break;
+      }
+      if (cursor.updatedSince.equals(pageUpdatedSince)) {
+        // a whole page updated at the same time, or skipped, so step over it within that time
+        cursor.startAt += page.issuesRead;
+      } else {
+        cursor.startAt = 0;
+      }
+      LOG.debug("read " + issuesHandled + " issues for " + clause + ", fetching the ones updated"
+          + " from " + cursor.updatedSince);
+    }
+
+    return issuesHandled;
+  }
+
+  /**
+   * Reads the page of a project's issues updated after updatedSince that starts at startAt among
+   * the issues matching the search. Unlike forEachIssueForProject, paging with startAt skips an
+   * issue whenever one on an earlier page is updated in between.
+   *
+   * @param updatedSince Only issues and histories after this date are returned, null for the
+   * default time window
+   */
+  JiraIssuePage getIssuePage(JiraProject project, Date updatedSince, int startAt) {
+    if (updatedSince == null) {
+      updatedSince = this.startDate;
+    }
+    final Date cutoffDate = updatedSince;
+    JiraIssueDecoder.Cutoff cutoff = new JiraIssueDecoder.Cutoff() {
+      public Date getUpdatedSince(String projectKey) {
+        return cutoffDate;
+      }
+    };
+
+    String jql = "project = \"" + project.getKey() + "\" AND updatedDate > "
+        + updatedSince.getTime() + " ORDER BY updated ASC";
+    final List<JiraIssue> issues = new ArrayList<JiraIssue>();
+    SearchPage page = this.readSearchPage(jiraRestApiBaseUrl + "search?",
+        "jql=" + encodeQueryParameter(jql) + getSearchParameters() + "&startAt=" + startAt,
+        cutoff, new SearchCursor(updatedSince), new Consumer<JiraIssue>() {
+          public void accept(JiraIssue issue) {
+            issues.add(issue);
+          }
+        });
+    searchBytesRead.addAndGet(page.bytesRead);
+    return new JiraIssuePage(issues, startAt, page.issuesRead, page.total);
+  }
+
+  /**
+   * Search parameters other than the JQL and startAt
+   */
+  private String getSearchParameters() {
     String parameters = "";
-    parameters += "jql=project=%22" + project.getKey() + "%22"; //Project Key
-    parameters += "%20AND%20updatedDate%20%3E" + this.startDate.getTime() + "%20"; //Start date
-    parameters += "ORDER%20BY%20updated%20DESC"; //Order by updated time
-    //parameters += "&orderBy=-updated";
     parameters += "&expand=changelog"; //operations,editmeta,renderedFields,name,schema
-    parameters += "&properties=all";
+    parameters += "&fields=" + encodeQueryParameter(issueFields);
     parameters +=
         "&maxResults=" + configurationProvider.getMaxResultsForGettingJiraIssuesPerProject();
+    return parameters;
+  }
+
+  /**
+   * Reads one page of search results token by token, building one issue at a time. Issues are
+   * handed over from this thread in page order; when an issue's changelog has to be completed,
+   * the issues after it wait until it is.
+   */
+  private SearchPage readSearchPage(String urlEndpoint, String parameters,
+      JiraIssueDecoder.Cutoff cutoff, SearchCursor cursor, Consumer<JiraIssue> handler) {
+
+    SearchPage page = new SearchPage();
+
+    try (CountingInputStream body = new CountingInputStream(
+        this.makeAuthenticatedStreamingRequest(urlEndpoint, parameters, "GET"));
+        JsonParser parser = this.objectMapper.getFactory().createParser(body)) {
 
-    String jsonStringResponse = this.makeAuthenticatedRequest(urlEndpoint, parameters, "GET");
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new RuntimeException("Unexpected search response, expected a JSON object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+
+        if ("total".equals(fieldName)) {
+          page.total = parser.getIntValue();
+        } else if ("issues".equals(fieldName) && value == JsonToken.START_ARRAY) {
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            page.issuesRead++;
+
+            // skips issues not updated since the cutoff, and histories created before it
+            JiraIssue issue = this.parseIssue(parser, cutoff);
+            if (issue == null || !cursor.issueRead(issue)) {
+              continue;
+            }
+            page.issuesHandled++;
+
+            if (issue.getChangeLog().isTruncated()) {
+              page.numTruncatedChangeLogs++;
+              Date updatedSince = cutoff.getUpdatedSince(issue.getProjectKey());
+              page.pendingIssues.add(
+                  this.changeLogExecutor.submit(this.completeChangeLogTask(issue, updatedSince)));
+            } else {
+              page.pendingIssues.add(CompletableFuture.completedFuture(issue));
+            }
+            this.handleCompletedIssues(page, handler);
+            if (page.handlerFailed) {
+              throw page.failure;
+            }
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+      page.bytesRead = body.getCount();
+    } catch (IOException ioException) {
+      LOG.error("Unable to read search results", ioException);
+      page.failed(new RuntimeException("Unable to read search results", ioException));
+    } catch (RuntimeException e) {
+      page.failed(e);
+    }
 
-    JSONObject jsonObjectResponse = new JSONObject(jsonStringResponse);
-    JSONArray jsonIssues = jsonObjectResponse.getJSONArray("issues");
+    // the issues read before a failure are still handed over
+    this.awaitChangeLogs(page, handler);
+    if (page.failure != null) {
+      throw page.failure;
+    }
+    return page;
+  }
 
-    for (int i = 0; i < jsonIssues.length(); i++) {
+  /**
+   * Hands over the issues at the head of the page whose changelog is complete
+   */
+  private void handleCompletedIssues(SearchPage page, Consumer<JiraIssue> handler) {
+    while (!page.pendingIssues.isEmpty() && page.pendingIssues.peek().isDone()) {
+      this.handleIssue(page, page.pendingIssues.poll(), handler);
+    }
+  }
 
-      JSONObject jsonIssue = jsonIssues.getJSONObject(i);
+  /**
+   * Waits for the changelogs still being completed and hands the rest of the page over in order
+   */
+  private void awaitChangeLogs(SearchPage page, Consumer<JiraIssue> handler) {
+    while (!page.pendingIssues.isEmpty()) {
+      Future<JiraIssue> pendingIssue = page.pendingIssues.poll();
       try {
-        JiraIssue issue = new JiraIssue(jsonIssue);
-        if (issue.getUpdated().after(this.startDate)) {
-          jiraIssues.add(issue);
+        pendingIssue.get();
+      } catch (ExecutionException e) {
+        // reported by handleIssue
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        pendingIssue.cancel(true);
+        for (Future<JiraIssue> abandonedIssue : page.pendingIssues) {
+          abandonedIssue.cancel(true);
+        }
+        page.pendingIssues.clear();
+        page.failed(new RuntimeException("Interrupted while completing changelogs", e));
+        break;
+      }
+      this.handleIssue(page, pendingIssue, handler);
+    }
+
+    if (page.numTruncatedChangeLogs > 0) {
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - page.startNanos);
+      this.numIssuesWithTruncatedChangeLog.addAndGet(page.numTruncatedChangeLogs);
+      this.changeLogFetchMillis.addAndGet(elapsedMillis);
+      LOG.info("fetched the rest of the changelog for " + page.numTruncatedChangeLogs
+          + " issue(s) in " + elapsedMillis + "ms");
+    }
+  }
+
+  /**
+   * Hands a completed issue over, or records why its changelog could not be completed. Once the
+   * handler failed it is not called again, but the rest of the page is still waited for.
+   */
+  private void handleIssue(SearchPage page, Future<JiraIssue> completedIssue,
+      Consumer<JiraIssue> handler) {
+    JiraIssue issue;
+    try {
+      issue = completedIssue.get();
+    } catch (ExecutionException e) {
+      page.failed(e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+          : new RuntimeException("Unable to complete changelog", e.getCause()));
+      return;
+    } catch (InterruptedException e) {
+      // only called once the issue is done
+      Thread.currentThread().interrupt();
+      page.failed(new RuntimeException("Interrupted while completing changelogs", e));
+      return;
+    }
+
+    if (page.handlerFailed) {
+      return;
+    }
+    try {
+      handler.accept(issue);
+    } catch (RuntimeException e) {
+      page.handlerFailed = true;
+      page.failed(e);
+    }
+  }
+
+  private Callable<JiraIssue> completeChangeLogTask(final JiraIssue issue,
+      final Date updatedSince) {
+    return new Callable<JiraIssue>() {
+      public JiraIssue call() {
+        return removeHistoriesBefore(completeChangeLog(issue, updatedSince), updatedSince);
+      }
+    };
+  }
+
+  /**
+   * Fetches the histories that were left out of an issue's embedded changelog from the issue's
+   * changelog endpoint. Histories older than updatedSince are not fetched where that can be told
+   * in advance.
+   *
+   * @return A copy of the issue with the fetched histories merged into its changelog
+   */
+  private JiraIssue completeChangeLog(JiraIssue issue, Date updatedSince) {
+    JiraIssue.ChangeLog changeLog = issue.getChangeLog();
+    int embeddedStart = changeLog.getStartAt();
+    int embeddedEnd = embeddedStart + changeLog.getNumHistoriesReturned();
+    int total = changeLog.getTotal();
+
+    LOG.debug("changelog of " + issue.getKey() + " has " + total + " histories but only "
+        + changeLog.getNumHistoriesReturned() + " were returned, fetching the rest");
+
+    List<JiraIssue.History> histories = new ArrayList<JiraIssue.History>();
+
+    // histories come oldest first, so the ones before the embedded changelog are all older than
+    // updatedSince once the decoder skipped any of the embedded ones, or once a page reaches it
+    if (changeLog.getHistories().length == changeLog.getNumHistoriesReturned()) {
+      int end = embeddedStart;
+      while (end > 0) {
+        int start = Math.max(0, end - MAX_CHANGELOG_PAGE_SIZE);
+        List<JiraIssue.History> olderHistories = this.fetchChangeLogRange(issue, start, end);
+        histories.addAll(olderHistories);
+        if (olderHistories.isEmpty() || !olderHistories.get(0).getCreated().after(updatedSince)) {
+          break;
         }
+        end = start;
+      }
+    }
+    histories.addAll(this.fetchChangeLogRange(issue, embeddedEnd, total));
+
+    return issue.withChangeLog(
+        changeLog.withMoreHistories(histories.toArray(new JiraIssue.History[histories.size()])));
+  }
+
+  private List<JiraIssue.History> fetchChangeLogRange(JiraIssue issue, int from, int to) {
+    String urlEndpoint = jiraRestApiBaseUrl + "issue/" + issue.getKey() + "/changelog?";
+
+    List<JiraIssue.History> histories = new ArrayList<JiraIssue.History>();
+    int startAt = from;
+    while (startAt < to) {
+      String parameters = "startAt=" + startAt + "&maxResults=" + (to - startAt);
+      String jsonResponse = this.makeAuthenticatedRequest(urlEndpoint, parameters, "GET");
 
-        JiraIssue.History[] histories = issue.getChangeLog().getHistories();
-        ArrayList<JiraIssue.History> validHistories = new ArrayList<JiraIssue.History>();
+      JiraIssue.History[] page = this.parseChangeLogValues(jsonResponse);
+      if (page.length == 0) {
+        break;
+      }
+      histories.addAll(Arrays.asList(page));
+      startAt += page.length;
+    }
+    return histories;
+  }
 
-        for (JiraIssue.History history : histories) {
-          if (history.getCreated().after(this.startDate)) {
-            validHistories.add(history);
+  /**
+   * Reads the histories out of a page returned by an issue's changelog endpoint
+   */
+  private JiraIssue.History[] parseChangeLogValues(String jsonResponse) {
+    try (JsonParser parser = this.objectMapper.getFactory().createParser(jsonResponse)) {
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String fieldName = parser.getCurrentName();
+          if (parser.nextToken() == JsonToken.START_ARRAY && "values".equals(fieldName)) {
+            return this.issueDecoder.decodeHistories(parser);
           }
+          parser.skipChildren();
         }
+      }
+    } catch (IOException ioException) {
+      LOG.error("Unable to read changelog", ioException);
+      throw new RuntimeException("Unable to read changelog", ioException);
+    }
+    throw new RuntimeException("Unexpected changelog response, no values: " + jsonResponse);
+  }
+
+  /**
+   * Number of issues so far whose changelog had to be completed with extra requests
+   */
+  public int getNumIssuesWithTruncatedChangeLog() {
+    return this.numIssuesWithTruncatedChangeLog.get();
+  }
 
-        histories = validHistories.toArray(new JiraIssue.History[validHistories.size()]);
-        issue.getChangeLog().setHistories(histories);
+  /**
+   * Time spent so far waiting for truncated changelogs to be completed
+   */
+  public long getChangeLogFetchMillis() {
+    return this.changeLogFetchMillis.get();
+  }
 
-      } catch (JSONException parsingException) {
-        LOG.error("Error parsing: " + jsonIssue.toString(), parsingException);
-        continue;
+  /**
+   * Builds a com.symphony.jirabot.models.JiraIssue from the issue the parser is on
+   *
+   * @return The issue, or null if it lacks fields the bot needs or was not updated after the
+   * cutoff
+   */
+  private JiraIssue parseIssue(JsonParser parser, JiraIssueDecoder.Cutoff cutoff)
+      throws IOException {
+    try {
+      return this.issueDecoder.decodeIssue(parser, cutoff);
+    } catch (IllegalArgumentException parsingException) {
+      LOG.error("Error parsing JIRA issue", parsingException);
+      return null;
+    }
+  }
+
+  /**
+   * Keeps only the histories of an issue created after updatedSince, once histories fetched
+   * separately were added to the ones kept while decoding
+   *
+   * @return A copy of the issue holding only those histories
+   */
+  private JiraIssue removeHistoriesBefore(JiraIssue issue, Date updatedSince) {
+    JiraIssue.History[] histories = issue.getChangeLog().getHistories();
+    ArrayList<JiraIssue.History> validHistories = new ArrayList<JiraIssue.History>();
+
+    for (JiraIssue.History history : histories) {
+      if (history.getCreated().after(updatedSince)) {
+        validHistories.add(history);
       }
     }
 
-    return jiraIssues;
+    if (validHistories.size() == histories.length) {
+      return issue;
+    }
+    return issue.withChangeLog(issue.getChangeLog()
+        .withHistories(validHistories.toArray(new JiraIssue.History[validHistories.size()])));
   }
 
   /**
@@ -232,32 +816,514 @@ public class JiraOauthClient implements IJiraClient {
    */
   public String makeAuthenticatedRequest(String urlEndpoint, String parameters,
       String requestType) {
-    try {
-      String url;
-      if (parameters == null) {
-        url = urlEndpoint;
-      } else {
-        url = urlEndpoint + parameters;
-      }
+    if (!"GET".equals(requestType)) {
+      return readBody(this.invoke(urlEndpoint, parameters, requestType, NO_HEADERS));
+    }
 
-      LOG.debug("Making request to " + url);
+    String url = parameters == null ? urlEndpoint : urlEndpoint + parameters;
+    String path = url.startsWith(jiraRestApiBaseUrl)
+        ? url.substring(jiraRestApiBaseUrl.length()) : url;
+    JiraEndpointClass endpointClass = JiraEndpointClass.forPath(path);
+    long maxAgeMillis = TimeUnit.SECONDS.toMillis(configurationProvider
+        .getJiraResponseCacheTtlInSeconds(endpointClass));
+    // users and myself hold email addresses, which are not written to the disk cache in clear
+    return this.makeGetRequest(urlEndpoint, parameters, maxAgeMillis,
+        endpointClass != JiraEndpointClass.USER);
+  }
+
+  /**
+   * Makes a GET request, reusing the cached response while it is younger than maxAgeMillis and
+   * revalidating it with a conditional request after that. A negative maxAgeMillis bypasses the
+   * cache. Identical GETs in flight at the same time share one response.
+   *
+   * @param onDisk False to cache the response in memory only
+   */
+  private String makeGetRequest(final String urlEndpoint, final String parameters,
+      final long maxAgeMillis, final boolean onDisk) {
+    final String url = parameters == null ? urlEndpoint : urlEndpoint + parameters;
+
+    return requestCoalescer.execute("GET " + url, new Supplier<String>() {
+      public String get() {
+        if (maxAgeMillis < 0) {
+          return readBody(invoke(urlEndpoint, parameters, "GET", NO_HEADERS));
+        }
 
-      OAuthClient client = new OAuthClient(new HttpClient4());
-      this.accessor.accessToken = configurationProvider.getJiraAccessToken();
-      OAuthMessage response =
-          client.invoke(this.accessor, requestType, url, Collections.<Map.Entry<?, ?>>emptySet());
+        JiraResponseCache.Entry cached = responseCache.get(url);
+        if (cached != null && cached.getAgeMillis() < maxAgeMillis) {
+          responseCacheHits.incrementAndGet();
+          return cached.getBody();
+        }
+
+        List<Map.Entry<String, String>> headers = new ArrayList<Map.Entry<String, String>>();
+        if (cached != null && cached.getEtag() != null) {
+          headers.add(new OAuth.Parameter("If-None-Match", cached.getEtag()));
+        }
+        if (cached != null && cached.getLastModified() != null) {
+          headers.add(new OAuth.Parameter("If-Modified-Since", cached.getLastModified()));
+        }
+
+        OAuthMessage response = invoke(urlEndpoint, parameters, "GET", headers);
+        if (response == null) {
+          responseCacheRevalidations.incrementAndGet();
+          return responseCache.revalidated(cached).getBody();
+        }
+
+        responseCacheMisses.incrementAndGet();
+        String body = readBody(response);
+        responseCache.put(url, body, response.getHeader("ETag"),
+            response.getHeader("Last-Modified"), onDisk);
+        return body;
+      }
+    });
+  }
+
+  private String readBody(OAuthMessage response) {
+    try {
       return response.readBodyAsString();
     } catch (IOException ioException) {
       LOG.error("Unable to make authenticated request", ioException);
       throw new RuntimeException("Unable to make authenticated request", ioException);
-    } catch (URISyntaxException syntaxException) {
-      LOG.error("Unable to make authenticated request", syntaxException);
-      throw new RuntimeException("Unable to make authenticated request", syntaxException);
-    } catch (OAuthException oauthException) {
-      LOG.warn("OAuthException in makeAuthenticatedRequest; attempting to reauthenticate",
-          oauthException);
-      this.authenticate();
-      return this.makeAuthenticatedRequest(urlEndpoint, parameters, requestType);
+    }
+  }
+
+  /**
+   * Number of GETs answered from the response cache without asking JIRA
+   */
+  public long getResponseCacheHits() {
+    return responseCacheHits.get();
+  }
+
+  /**
+   * Number of GETs answered from the response cache after JIRA confirmed it was unchanged
+   */
+  public long getResponseCacheRevalidations() {
+    return responseCacheRevalidations.get();
+  }
+
+  /**
+   * Number of cacheable GETs whose response had to be downloaded
+   */
+  public long getResponseCacheMisses() {
+    return responseCacheMisses.get();
+  }
+
+  /**
+   * Shares identical requests in flight at the same time, and counts the requests it saved
+   */
+  public RequestCoalescer getRequestCoalescer() {
+    return requestCoalescer;
+  }
+
+  /**
+   * Makes an authenticated request to the JIRA API, leaving the response body to be streamed
+   *
+   * @param urlEndpoint
+   * @param parameters
+   * @param requestType
+   * @return Response body, which the caller must close
+   */
+  public InputStream makeAuthenticatedStreamingRequest(String urlEndpoint, String parameters,
+      String requestType) {
+    try {
+      return this.invoke(urlEndpoint, parameters, requestType, NO_HEADERS).getBodyAsStream();
+    } catch (IOException ioException) {
+      LOG.error("Unable to make authenticated request", ioException);
+      throw new RuntimeException("Unable to make authenticated request", ioException);
+    }
+  }
+
+  /**
+   * Makes a request, retrying failures that may go away on their own. Requests to a host whose
+   * circuit breaker is open fail fast with a CircuitOpenException.
+   *
+   * @return The response, or null if the request was conditional and JIRA answered 304 Not
+   * Modified
+   */
+  private OAuthMessage invoke(String urlEndpoint, String parameters, String requestType,
+      List<? extends Map.Entry<String, String>> requestHeaders) {
+    String url;
+    if (parameters == null) {
+      url = urlEndpoint;
+    } else {
+      url = urlEndpoint + parameters;
+    }
+    CircuitBreaker circuitBreaker = getCircuitBreaker(url);
+    JiraEndpointClass endpointClass = getEndpointClass(url);
+    TokenBucket rateLimiter = rateLimiters.get(endpointClass);
+    AdaptiveConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.get(endpointClass);
+
+    for (int attempt = 1; ; attempt++) {
+      long waitMillis = rateLimiter.acquire();
+      if (waitMillis > 0) {
+        LOG.debug("waited " + waitMillis + "ms for a " + rateLimiter.getName() + " permit");
+      }
+      circuitBreaker.acquirePermission();
+      LOG.debug("Making request to " + url);
+
+      RuntimeException failure;
+      long retryAfterMillis = 0;
+      boolean overloaded = false;
+      RequestPermit permit = new RequestPermit(concurrencyLimiter);
+      try {
+        OAuthMessage request = signingContext.newRequestMessage(requestType, url);
+        request.getHeaders().addAll(requestHeaders);
+        OAuthMessage response = oauthClient.invoke(request, ParameterStyle.BODY);
+        circuitBreaker.onSuccess();
+        logPoolStats();
+        return permit.releaseOnClose(response);
+      } catch (OAuthProblemException problem) {
+        int status = problem.getHttpStatusCode();
+        if (status == 304 && !requestHeaders.isEmpty()) {
+          circuitBreaker.onSuccess();
+          return null;
+        }
+        failure = new RuntimeException("JIRA responded with HTTP " + status + " to " + url,
+            problem);
+        if (RetryPolicy.isHostFailure(status)) {
+          overloaded = true;
+          circuitBreaker.onFailure();
+        } else {
+          circuitBreaker.onSuccess();
+        }
+        if (!RetryPolicy.isRetryable(status)) {
+          LOG.error("Unable to make authenticated request", problem);
+          throw failure;
+        }
+        retryAfterMillis = getRetryAfterMillis(problem);
+      } catch (OAuthException oauthException) {
+        circuitBreaker.onSuccess();
+        LOG.error("Unable to make authenticated request", oauthException);
+        throw new RuntimeException("Unable to make authenticated request", oauthException);
+      } catch (URISyntaxException syntaxException) {
+        circuitBreaker.onSuccess();
+        LOG.error("Unable to make authenticated request", syntaxException);
+        throw new RuntimeException("Unable to make authenticated request", syntaxException);
+      } catch (IOException ioException) {
+        overloaded = true;
+        circuitBreaker.onFailure();
+        failure = new RuntimeException("Unable to make authenticated request", ioException);
+      } finally {
+        permit.releaseUnlessHandedOver(overloaded);
+      }
+
+      if (attempt >= retryPolicy.getMaxAttempts()) {
+        retryPolicy.gaveUp();
+        LOG.error("giving up on " + url + " after " + attempt + " attempt(s)", failure);
+        throw failure;
+      }
+
+      long delayMillis = Math.max(retryPolicy.getBackoffMillis(attempt), retryAfterMillis);
+      if (delayMillis > retryPolicy.getMaxDelayMillis()) {
+        // rather than block a poll for that long, stop calling JIRA until it is ready again
+        circuitBreaker.openFor(retryAfterMillis);
+        retryPolicy.gaveUp();
+        LOG.error("giving up on " + url + ", JIRA asked to retry after " + retryAfterMillis + "ms",
+            failure);
+        throw failure;
+      }
+
+      LOG.warn("attempt " + attempt + " of " + url + " failed, retrying in " + delayMillis
+          + "ms: " + failure.getMessage());
+      retryPolicy.sleepBeforeRetry(delayMillis);
+    }
+  }
+
+  /**
+   * Returns how long JIRA asked us to wait in the Retry-After header of a failed response, or 0
+   */
+  private static long getRetryAfterMillis(OAuthProblemException problem) {
+    Object response = problem.getParameters().get(OAuthProblemException.HTTP_RESPONSE);
+    if (response == null) {
+      return 0;
+    }
+    for (String line : response.toString().split("\r?\n")) {
+      if (line.isEmpty()) {
+        break; // end of the headers
+      }
+      int colon = line.indexOf(':');
+      if (colon < 0 || !line.substring(0, colon).trim().equalsIgnoreCase("Retry-After")) {
+        continue;
+      }
+      return RetryPolicy.parseRetryAfterMillis(line.substring(colon + 1),
+          System.currentTimeMillis());
+    }
+    return 0;
+  }
+
+  private CircuitBreaker getCircuitBreaker(String url) {
+    String host;
+    try {
+      host = new URL(url).getHost();
+    } catch (MalformedURLException e) {
+      throw new RuntimeException("Unable to make authenticated request to " + url, e);
+    }
+
+    CircuitBreaker circuitBreaker = circuitBreakersByHost.get(host);
+    if (circuitBreaker == null) {
+      circuitBreakersByHost.putIfAbsent(host, new CircuitBreaker(host,
+          configurationProvider.getJiraCircuitBreakerFailureThreshold(),
+          TimeUnit.SECONDS.toMillis(configurationProvider.getJiraCircuitBreakerOpenInSeconds())));
+      circuitBreaker = circuitBreakersByHost.get(host);
+    }
+    return circuitBreaker;
+  }
+
+  /**
+   * Returns the class of endpoint a URL belongs to
+   */
+  private JiraEndpointClass getEndpointClass(String url) {
+    String path = url.startsWith(jiraRestApiBaseUrl)
+        ? url.substring(jiraRestApiBaseUrl.length()) : url;
+    return JiraEndpointClass.forPath(path);
+  }
+
+  /**
+   * Rate limiter of each class of JIRA endpoint, with how long requests waited for it
+   */
+  public Map<JiraEndpointClass, TokenBucket> getRateLimiters() {
+    return Collections.unmodifiableMap(rateLimiters);
+  }
+
+  /**
+   * Limit on JIRA requests in flight for each class of endpoint, with the latency it adapts to
+   */
+  public Map<JiraEndpointClass, AdaptiveConcurrencyLimiter> getConcurrencyLimiters() {
+    return Collections.unmodifiableMap(concurrencyLimiters);
+  }
+
+  /**
+   * Circuit breaker of every JIRA host requested so far
+   */
+  public Map<String, CircuitBreaker> getCircuitBreakers() {
+    return Collections.unmodifiableMap(circuitBreakersByHost);
+  }
+
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
+  }
+
+  /**
+   * Bytes of search results read since the client was created, after decompression
+   */
+  public long getSearchBytesRead() {
+    return searchBytesRead.get();
+  }
+
+  /**
+   * Bytes received from JIRA since the client was created, as sent over the wire
+   */
+  public long getBytesReceived() {
+    return transport.getBytesReceived();
+  }
+
+  /**
+   * Issue fields read by JiraIssue plus any extra fields configured, comma separated
+   */
+  private static String getIssueFields(IConfigurationProvider configurationProvider) {
+    Set<String> fields = new LinkedHashSet<String>(Arrays.asList(JiraIssue.FIELDS));
+    fields.addAll(configurationProvider.getJiraExtraIssueFields());
+
+    StringBuilder issueFields = new StringBuilder();
+    for (String field : fields) {
+      if (issueFields.length() > 0) {
+        issueFields.append(',');
+      }
+      issueFields.append(field);
+    }
+    return issueFields.toString();
+  }
+
+  /**
+   * Leased, available and pending connections to JIRA
+   */
+  public PoolStats getConnectionPoolStats() {
+    return transport.getPoolStats();
+  }
+
+  private void logPoolStats() {
+    if (LOG.isDebugEnabled()) {
+      PoolStats stats = transport.getPoolStats();
+      LOG.debug("JIRA connections: " + stats.getLeased() + " leased, " + stats.getAvailable()
+          + " available, " + stats.getPending() + " pending");
+    }
+  }
+
+  private static String encodeQueryParameter(String value) {
+    try {
+      return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException("UTF-8 is not supported", e);
+    }
+  }
+
+  /**
+   * Counts for a single page of search results
+   */
+  private static class SearchPage {
+    private final long startNanos = System.nanoTime();
+    private final Queue<Future<JiraIssue>> pendingIssues = new ArrayDeque<Future<JiraIssue>>();
+    private int numTruncatedChangeLogs;
+    private boolean handlerFailed;
+    private RuntimeException failure;
+
+    /**
+     * Keeps the first failure, adding any later one to it as suppressed
+     */
+    private void failed(RuntimeException nextFailure) {
+      if (failure == null) {
+        failure = nextFailure;
+      } else if (failure != nextFailure) {
+        failure.addSuppressed(nextFailure);
+      }
+    }
+    private int total;
+    private int issuesRead;
+    private int issuesHandled;
+    private long bytesRead;
+  }
+
+  /**
+   * A request's place within its concurrency limit and the connection pool. The place in the
+   * limit is given back with a round trip time sample once the response headers arrived, as a
+   * streamed body is read at whatever pace its handler goes; the connection is only given back
+   * once the body is closed, or straight away when there is no body to hand over.
+   */
+  private class RequestPermit {
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final long startNanos;
+    private final AtomicBoolean connectionReleased = new AtomicBoolean();
+    private boolean limitReleased;
+    private boolean handedOver;
+
+    private RequestPermit(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+      concurrencyLimiter.acquire();
+      try {
+        connectionPermits.acquire();
+      } catch (InterruptedException e) {
+        concurrencyLimiter.cancel();
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("interrupted while waiting for a JIRA connection", e);
+      }
+      this.concurrencyLimiter = concurrencyLimiter;
+      this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the response with a body that gives the connection back when it is closed
+     */
+    private OAuthMessage releaseOnClose(OAuthMessage response) throws IOException {
+      // JIRA's part of the round trip ends with the headers, the rest is up to the reader
+      releaseLimit(false);
+      InputStream body = response.getBodyAsStream();
+      if (body == null) {
+        return response;
+      }
+      OAuthMessage limitedResponse = new OAuthMessage(response.method, response.URL,
+          Collections.<Map.Entry<String, String>>emptyList(), new FilterInputStream(body) {
+            @Override
+            public void close() throws IOException {
+              try {
+                super.close();
+              } finally {
+                releaseConnection();
+              }
+            }
+          });
+      limitedResponse.getHeaders().addAll(response.getHeaders());
+      handedOver = true;
+      return limitedResponse;
+    }
+
+    private void releaseUnlessHandedOver(boolean overloaded) {
+      if (!handedOver) {
+        releaseLimit(overloaded);
+        releaseConnection();
+      }
+    }
+
+    private void releaseLimit(boolean overloaded) {
+      if (!limitReleased) {
+        limitReleased = true;
+        concurrencyLimiter.release(System.nanoTime() - startNanos, overloaded);
+      }
+    }
+
+    private void releaseConnection() {
+      if (connectionReleased.compareAndSet(false, true)) {
+        connectionPermits.release();
+      }
+    }
+  }
+
+  /**
+   * Where the next page of a search starts: the latest update time seen so far, and the issues
+   * already handled at that time
+   */
+  private static class SearchCursor {
+    private Date updatedSince;
+    private boolean inclusive;
+    private int startAt;
+    private final Set<String> issueIdsAtUpdatedSince = new HashSet<String>();
+
+    private SearchCursor(Date updatedSince) {
+      this.updatedSince = updatedSince;
+    }
+
+    /**
+     * Moves the cursor to an issue read from the search results
+     *
+     * @return False if the issue was already handled by an earlier page
+     */
+    private boolean issueRead(JiraIssue issue) {
+      Date updated = issue.getUpdated();
+      if (updated.after(updatedSince)) {
+        updatedSince = updated;
+        inclusive = true;
+        issueIdsAtUpdatedSince.clear();
+      } else if (!updated.equals(updatedSince)) {
+        return true;
+      }
+      return issueIdsAtUpdatedSince.add(issue.getId());
+    }
+  }
+
+  /**
+   * Counts the bytes read through it
+   */
+  private static class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    private CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int numRead = super.read(buffer, offset, length);
+      if (numRead > 0) {
+        count += numRead;
+      }
+      return numRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
+    }
+
+    private long getCount() {
+      return count;
     }
   }
 
@@ -272,16 +1338,4 @@ public class JiraOauthClient implements IJiraClient {
         configurationProvider.getJiraRefreshRateInSeconds());
     this.startDate = new Date(startTime);
   }
-
-  private String getAccessTokenUrl() {
-    return configurationProvider.getJiraBaseURL() + OAUTH_PATH + "access-token";
-  }
-
-  private String getRequestTokenUrl() {
-    return configurationProvider.getJiraBaseURL() + OAUTH_PATH + "request-token";
-  }
-
-  private String getAuthorizeUrl() {
-    return configurationProvider.getJiraBaseURL() + OAUTH_PATH + "authorize";
-  }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.models.JiraProject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caches the JIRA projects returned by IJiraClient.getAllProjects(), indexed by name.
+ *
+ * The catalogue is refreshed in the background every TTL, so looking up a project never waits on
+ * JIRA once the first load is done. When a project is looked up but missing, a refresh can be
+ * requested early; those are limited to one per minute.
+ */
+public class JiraProjectCatalogue {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraProjectCatalogue.class);
+
+  private static final long MIN_MILLIS_BETWEEN_FORCED_REFRESHES = TimeUnit.MINUTES.toMillis(1);
+
+  private final IJiraClient jiraClient;
+  private final long ttlInSeconds;
+
+  private final ScheduledExecutorService refresher =
+      Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "jira-project-catalogue");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+  private final AtomicBoolean refreshing = new AtomicBoolean();
+
+  private volatile Map<String, JiraProject> projectsByName;
+  private volatile long lastRefreshMillis;
+  private volatile long lastForcedRefreshMillis;
+
+  /**
+   * @throws IllegalArgumentException If ttlInSeconds is not positive
+   */
+  public JiraProjectCatalogue(IJiraClient jiraClient, long ttlInSeconds) {
+    if (ttlInSeconds <= 0) {
+      throw new IllegalArgumentException(
+          "JIRA project catalogue TTL must be at least 1 second, got " + ttlInSeconds);
+    }
+    this.jiraClient = jiraClient;
+    this.ttlInSeconds = ttlInSeconds;
+  }
+
+  /**
+   * Returns the project with the given name, or null if JIRA did not list it at the last refresh.
+   * Only the very first call waits for JIRA.
+   */
+  public JiraProject getProjectForName(String name) {
+    Map<String, JiraProject> projects = projectsByName;
+    if (projects == null) {
+      synchronized (this) {
+        if (projectsByName == null) {
+          refresh();
+          refresher.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+              refresh();
+            }
+          }, ttlInSeconds, ttlInSeconds, TimeUnit.SECONDS);
+        }
+        projects = projectsByName;
+      }
+    }
+    return projects.get(name);
+  }
+
+  /**
+   * Refreshes the catalogue in the background, e.g. because a configured project name was not
+   * found, unless a refresh ran less than a minute ago
+   */
+  public void requestRefresh() {
+    long now = System.currentTimeMillis();
+    if (now - lastForcedRefreshMillis < MIN_MILLIS_BETWEEN_FORCED_REFRESHES
+        || now - lastRefreshMillis < MIN_MILLIS_BETWEEN_FORCED_REFRESHES) {
+      return;
+    }
+    lastForcedRefreshMillis = now;
+    LOG.info("refreshing the JIRA project catalogue early");
+    refresher.execute(new Runnable() {
+      public void run() {
+        refresh();
+      }
+    });
+  }
+
+  /**
+   * Time of the last successful refresh, 0 if there was none
+   */
+  public long getLastRefreshMillis() {
+    return lastRefreshMillis;
+  }
+
+  private void refresh() {
+    if (!refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      JiraProject[] projects = jiraClient.getAllProjects();
+      Map<String, JiraProject> byName = new HashMap<String, JiraProject>();
+      if (projects != null) {
+        for (JiraProject project : projects) {
+          byName.put(project.getName(), project);
+        }
+      }
+      projectsByName = Collections.unmodifiableMap(byName);
+      lastRefreshMillis = System.currentTimeMillis();
+      LOG.debug("JIRA project catalogue refreshed with " + byName.size() + " projects");
+    } catch (RuntimeException e) {
+      // keep serving the previous catalogue
+      LOG.error("failed to refresh the JIRA project catalogue", e);
+      if (projectsByName == null) {
+        projectsByName = Collections.emptyMap();
+      }
+    } finally {
+      refreshing.set(false);
+    }
+  }
+}
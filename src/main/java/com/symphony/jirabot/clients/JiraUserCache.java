@@ -0,0 +1,139 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.models.JiraUser;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches the JIRA user found for each email address, and the addresses no user was found for.
+ *
+ * The cache holds a bounded number of addresses, evicting the least recently used. Failed loads
+ * are not cached. Lookups of the same uncached address at once are not shared here: the loader
+ * goes through JiraOauthClient's RequestCoalescer, which shares identical requests in flight.
+ */
+public class JiraUserCache {
+
+  private final Function<String, JiraUser> loader;
+  private final long ttlMillis;
+  private final long negativeTtlMillis;
+
+  private final Map<String, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong loads = new AtomicLong();
+
+  /**
+   * @param loader Looks up the user for an email address, returning null if there is none
+   * @param capacity Number of email addresses cached
+   * @param ttlInSeconds How long a user found is cached
+   * @param negativeTtlInSeconds How long an address without a user is cached
+   */
+  public JiraUserCache(Function<String, JiraUser> loader, final int capacity, long ttlInSeconds,
+      long negativeTtlInSeconds) {
+    this.loader = loader;
+    this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlInSeconds);
+    this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlInSeconds);
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Returns the user for an email address, or null if JIRA has none
+   */
+  public JiraUser get(String emailAddress) {
+    String key = emailAddress.trim().toLowerCase(Locale.ROOT);
+
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+      if (entry != null && entry.expiresAtMillis <= System.currentTimeMillis()) {
+        entries.remove(key);
+        entry = null;
+      }
+    }
+    if (entry != null) {
+      (entry.user == null ? negativeHits : hits).incrementAndGet();
+      return entry.user;
+    }
+
+    loads.incrementAndGet();
+    JiraUser user = loader.apply(emailAddress);
+    long ttl = user == null ? negativeTtlMillis : ttlMillis;
+    synchronized (entries) {
+      entries.put(key, new Entry(user, System.currentTimeMillis() + ttl));
+    }
+    return user;
+  }
+
+  /**
+   * Number of lookups answered with a cached user
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Number of lookups answered with a cached absence of user
+   */
+  public long getNegativeHits() {
+    return negativeHits.get();
+  }
+
+  /**
+   * Number of lookups that went to JIRA
+   */
+  public long getLoads() {
+    return loads.get();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private static class Entry {
+    private final JiraUser user;
+    private final long expiresAtMillis;
+
+    private Entry(JiraUser user, long expiresAtMillis) {
+      this.user = user;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import com.symphony.jirabot.configurations.IConfigurationProvider;
+
+import net.oauth.OAuth;
+import net.oauth.OAuthAccessor;
+import net.oauth.OAuthConsumer;
+import net.oauth.OAuthException;
+import net.oauth.OAuthMessage;
+import net.oauth.OAuthServiceProvider;
+import net.oauth.http.HttpMessage;
+import net.oauth.http.HttpMessageDecoder;
+import net.oauth.signature.RSA_SHA1;
+import net.oauth.signature.pem.PEMReader;
+import net.oauth.signature.pem.PKCS1EncodedKeySpec;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.spec.KeySpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Everything needed to sign a JIRA request with RSA-SHA1, fixed once created so it can be shared
+ * by any number of threads.
+ *
+ * The private key is parsed from PEM once, here. Handed a PEM string instead, RSA_SHA1 would parse
+ * it again for every request it signs. Each request gets an accessor of its own from
+ * newAccessor(), and RSA_SHA1 creates a signer per message, so concurrent requests never share
+ * mutable signing state. The access token, unlike the consumer key, is read again for every
+ * accessor, so a rotated token is picked up without a restart.
+ */
+public final class OAuthSigningContext {
+
+  private static final String OAUTH_PATH = "/plugins/servlet/oauth/";
+
+  private final OAuthConsumer consumer;
+  private final Supplier<String> accessToken;
+
+  public OAuthSigningContext(OAuthServiceProvider serviceProvider, String callbackUrl,
+      String consumerKey, String privateKeyPem, final String accessToken) {
+    this(serviceProvider, callbackUrl, consumerKey, privateKeyPem, new Supplier<String>() {
+      public String get() {
+        return accessToken;
+      }
+    });
+  }
+
+  /**
+   * @param accessToken Called for every request signed, so it should return quickly
+   */
+  public OAuthSigningContext(OAuthServiceProvider serviceProvider, String callbackUrl,
+      String consumerKey, String privateKeyPem, Supplier<String> accessToken) {
+    OAuthConsumer consumer = new OAuthConsumer(callbackUrl, consumerKey, null, serviceProvider);
+    consumer.setProperty(RSA_SHA1.PRIVATE_KEY, parsePrivateKey(privateKeyPem));
+    consumer.setProperty(OAuth.OAUTH_SIGNATURE_METHOD, OAuth.RSA_SHA1);
+
+    this.consumer = consumer;
+    this.accessToken = accessToken;
+  }
+
+  /**
+   * Creates the signing context for the JIRA instance and credentials of the configuration
+   */
+  public static OAuthSigningContext forJira(
+      final IConfigurationProvider configurationProvider) {
+    String oauthUrl = configurationProvider.getJiraBaseURL() + OAUTH_PATH;
+    OAuthServiceProvider serviceProvider = new OAuthServiceProvider(oauthUrl + "request-token",
+        oauthUrl + "authorize", oauthUrl + "access-token");
+
+    return new OAuthSigningContext(serviceProvider, configurationProvider.getJiraCallback(),
+        configurationProvider.getJiraConsumerKey(),
+        configurationProvider.getJiraConsumerPrivateKey(), new Supplier<String>() {
+          public String get() {
+            return configurationProvider.getJiraAccessToken();
+          }
+        });
+  }
+
+  /**
+   * Returns a new accessor carrying the current access token, for signing a single request
+   */
+  public OAuthAccessor newAccessor() {
+    OAuthAccessor accessor = new OAuthAccessor(consumer);
+    accessor.accessToken = accessToken.get();
+    return accessor;
+  }
+
+  /**
+   * Returns a signed request, asking for a compressed response (which OAuthClient decodes)
+   */
+  public OAuthMessage newRequestMessage(String requestType, String url)
+      throws IOException, OAuthException, URISyntaxException {
+    OAuthMessage request = newAccessor().newRequestMessage(requestType, url,
+        Collections.<Map.Entry<?, ?>>emptySet());
+    request.getHeaders().add(
+        new OAuth.Parameter(HttpMessage.ACCEPT_ENCODING, HttpMessageDecoder.ACCEPTED));
+    return request;
+  }
+
+  /**
+   * Parses a PKCS#1 (BEGIN RSA PRIVATE KEY) or PKCS#8 (BEGIN PRIVATE KEY) PEM encoded RSA key
+   */
+  public static PrivateKey parsePrivateKey(String privateKeyPem) {
+    try {
+      PEMReader reader = new PEMReader(privateKeyPem.getBytes("UTF-8"));
+      KeySpec keySpec;
+      if (PEMReader.PRIVATE_PKCS1_MARKER.equals(reader.getBeginMarker())) {
+        keySpec = new PKCS1EncodedKeySpec(reader.getDerBytes()).getKeySpec();
+      } else if (PEMReader.PRIVATE_PKCS8_MARKER.equals(reader.getBeginMarker())) {
+        keySpec = new PKCS8EncodedKeySpec(reader.getDerBytes());
+      } else {
+        throw new RuntimeException(
+            "unsupported JIRA consumer private key: " + reader.getBeginMarker());
+      }
+      return KeyFactory.getInstance("RSA").generatePrivate(keySpec);
+    } catch (IOException e) {
+      throw new RuntimeException("failed to read JIRA consumer private key", e);
+    } catch (GeneralSecurityException e) {
+      throw new RuntimeException("failed to read JIRA consumer private key", e);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.clients;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers of the same request share a single execution of it.
+ *
+ * The first caller for a key runs the request; callers arriving with the same key while it is in
+ * flight wait for and share its result, or its failure. Nothing is cached: once the request is
+ * done, the next caller runs it again.
+ */
+public class RequestCoalescer {
+
+  private final ConcurrentMap<String, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+  private final AtomicLong executed = new AtomicLong();
+  private final AtomicLong saved = new AtomicLong();
+
+  /**
+   * Runs the request, or waits for the one already running under the same key. A key must always
+   * be used for requests returning the same type.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String key, Supplier<T> request) {
+    CompletableFuture<Object> execution = new CompletableFuture<Object>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, execution);
+    if (running != null) {
+      saved.incrementAndGet();
+      return (T) await(running);
+    }
+
+    try {
+      executed.incrementAndGet();
+      T result = request.get();
+      execution.complete(result);
+      return result;
+    } catch (Throwable e) {
+      // including Errors, or the callers sharing the request would wait forever
+      execution.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, execution);
+    }
+  }
+
+  private static Object await(CompletableFuture<Object> execution) {
+    try {
+      return execution.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while waiting for a shared request", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new RuntimeException("shared request failed", e.getCause());
+    }
+  }
+
+  /**
+   * Number of requests actually made
+   */
+  public long getExecuted() {
+    return executed.get();
+  }
+
+  /**
+   * Number of requests avoided by sharing one already in flight
+   */
+  public long getSaved() {
+    return saved.get();
+  }
+}
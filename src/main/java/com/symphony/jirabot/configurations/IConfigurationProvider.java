@@ -24,6 +24,8 @@
 
 package com.symphony.jirabot.configurations;
 
+import com.symphony.jirabot.clients.JiraEndpointClass;
+
 import java.util.Set;
 
 /**
@@ -67,6 +69,16 @@ public interface IConfigurationProvider {
    */
   int getJiraRefreshRateInSeconds();
 
+  /**
+   * Shortest interval between two polls of the same JIRA project, used while it is busy
+   */
+  int getJiraMinRefreshRateInSeconds();
+
+  /**
+   * Longest interval between two polls of the same JIRA project, reached while it is quiet
+   */
+  int getJiraMaxRefreshRateInSeconds();
+
   /**
    * A set of JIRA project names that the bot will take interest in
    */
@@ -77,11 +89,243 @@ public interface IConfigurationProvider {
    */
   int getMaxResultsForGettingJiraProjects();
 
+  /**
+   * How long the list of JIRA projects is cached before it is refreshed in the background, at
+   * least 1 second
+   */
+  int getJiraProjectCatalogueTtlInSeconds();
+
   /**
    * Maximum JIRA results for query seeking issues for a single project
    */
   int getMaxResultsForGettingJiraIssuesPerProject();
 
+  /**
+   * JIRA issue fields to fetch on top of the ones the bot reads, e.g. custom fields
+   */
+  Set<String> getJiraExtraIssueFields();
+
+  /**
+   * Properties file of change classification rules added to or replacing the built-in ones (see
+   * jira-change-classification.properties), or null to use the built-in rules only
+   */
+  String getChangeClassificationFile();
+
+  /**
+   * Number of JIRA projects that are polled, formatted and delivered concurrently
+   * (1 polls the projects one after the other)
+   */
+  int getJiraPollingThreadCount();
+
+  /**
+   * Whether the projects due for a poll are searched together instead of with one query per
+   * project. They are split into one group per polling thread, each searched with a single query.
+   */
+  boolean isJiraMultiProjectSearchEnabled();
+
+  /**
+   * File in which the last processed update of each JIRA project is kept across restarts
+   */
+  String getJiraWatermarkFilePath();
+
+  /**
+   * Maximum number of issues whose truncated changelogs are completed from JIRA concurrently
+   */
+  int getMaxConcurrentChangeLogFetches();
+
+  /**
+   * Path prefix of the files remembering which JIRA events were already delivered
+   */
+  String getDeliveredEventIndexPath();
+
+  /**
+   * Number of delivered JIRA events remembered before the oldest start being forgotten
+   */
+  long getDeliveredEventIndexCapacity();
+
+  /**
+   * Whether JIRA pushes issue updates to the bot through webhooks, in which case polling only
+   * reconciles anything the webhooks missed
+   */
+  boolean isJiraWebhookEnabled();
+
+  /**
+   * Address the JIRA webhook listener binds to, e.g. 127.0.0.1 behind a reverse proxy, or 0.0.0.0
+   * for every interface
+   */
+  String getJiraWebhookBindAddress();
+
+  /**
+   * Port the JIRA webhook listener binds to
+   */
+  int getJiraWebhookPort();
+
+  /**
+   * Path JIRA posts webhooks to (e.g. /jira/webhook)
+   */
+  String getJiraWebhookPath();
+
+  /**
+   * Shared secret JIRA has to send as the token query parameter of the webhook URL. Required
+   * when webhooks are enabled.
+   */
+  String getJiraWebhookSecret();
+
+  /**
+   * Number of accepted JIRA webhooks that may wait to enter the pipeline; webhooks arriving while
+   * it is full are answered with a 503 for JIRA to send them again
+   */
+  int getJiraWebhookQueueCapacity();
+
+  /**
+   * Size in bytes above which a JIRA webhook is rejected without being read
+   */
+  int getJiraWebhookMaxBodyBytes();
+
+  /**
+   * How often each JIRA project is polled for missed updates while webhooks are enabled
+   */
+  int getJiraReconciliationRefreshRateInSeconds();
+
+  /**
+   * Number of threads sorting JIRA updates into the ones worth posting
+   */
+  int getPipelineClassifyThreadCount();
+
+  /**
+   * Number of threads rendering JIRA updates into MessageML
+   */
+  int getPipelineFormatThreadCount();
+
+  /**
+   * Number of threads posting JIRA updates into Symphony
+   */
+  int getPipelineDeliverThreadCount();
+
+  /**
+   * Number of JIRA issues each pipeline stage holds before holding up the stage feeding it
+   */
+  int getPipelineQueueCapacity();
+
+  /**
+   * How long a poll waits for its JIRA issues to leave the pipeline before the poll fails, so a
+   * stuck stage cannot keep a project from being polled again. Must be at least 1 second.
+   */
+  int getPipelineDrainTimeoutInSeconds();
+
+  /**
+   * Number of connections kept open to JIRA
+   */
+  int getJiraMaxConnectionsPerRoute();
+
+  /**
+   * How long an idle connection to JIRA is kept open, unless JIRA asks for less. At least 1
+   * second.
+   */
+  int getJiraKeepAliveInSeconds();
+
+  /**
+   * How long to wait for a connection to JIRA to be established, or for a free pooled one
+   */
+  int getJiraConnectTimeoutInMillis();
+
+  /**
+   * How long to wait for data from JIRA before giving up on a request
+   */
+  int getJiraReadTimeoutInMillis();
+
+  /**
+   * Number of times a JIRA request is tried before giving up, including the first
+   */
+  int getJiraMaxRequestAttempts();
+
+  /**
+   * Delay before retrying a failed JIRA request the first time; it doubles with each retry
+   */
+  int getJiraRetryBaseDelayInMillis();
+
+  /**
+   * Longest delay before retrying a JIRA request. Requests JIRA asks us to hold off for longer
+   * (via Retry-After) are given up instead.
+   */
+  int getJiraRetryMaxDelayInMillis();
+
+  /**
+   * Number of consecutive failed JIRA requests after which requests to that host fail fast
+   */
+  int getJiraCircuitBreakerFailureThreshold();
+
+  /**
+   * How long requests to a failing JIRA host fail fast before one is tried again
+   */
+  int getJiraCircuitBreakerOpenInSeconds();
+
+  /**
+   * Number of email addresses whose JIRA user is remembered
+   */
+  int getJiraUserCacheCapacity();
+
+  /**
+   * How long the JIRA user found for an email address is remembered
+   */
+  int getJiraUserCacheTtlInSeconds();
+
+  /**
+   * How long an email address without a JIRA user is remembered as such
+   */
+  int getJiraUserCacheNegativeTtlInSeconds();
+
+  /**
+   * Steady rate of requests to a class of JIRA endpoints
+   */
+  double getJiraRequestsPerSecond(JiraEndpointClass endpointClass);
+
+  /**
+   * Number of requests to a class of JIRA endpoints that may be made at once after a quiet
+   * period
+   */
+  int getJiraRequestBurst(JiraEndpointClass endpointClass);
+
+  /**
+   * How long a JIRA response from a class of endpoints is reused before being revalidated; 0 to
+   * always revalidate, negative not to cache the responses at all. User lookups by email address
+   * are cached by JiraUserCache instead, see getJiraUserCacheTtlInSeconds().
+   */
+  int getJiraResponseCacheTtlInSeconds(JiraEndpointClass endpointClass);
+
+  /**
+   * Total size of the JIRA responses cached in memory
+   */
+  long getJiraResponseCacheMaxBytes();
+
+  /**
+   * Directory JIRA responses are also cached in, across restarts, or null to cache them in memory
+   * only. Responses of USER endpoints are never written there, as they hold email addresses.
+   */
+  String getJiraResponseCacheDirectory();
+
+  /**
+   * Total size of the JIRA responses cached in getJiraResponseCacheDirectory()
+   */
+  long getJiraResponseCacheMaxBytesOnDisk();
+
+  /**
+   * Number of requests allowed in flight at first for each class of JIRA endpoint; each limit
+   * then adapts to the latency of its class, and together they stay within
+   * getJiraMaxConnectionsPerRoute()
+   */
+  int getJiraInitialConcurrentRequests();
+
+  /**
+   * Lowest number of requests the adaptive limit of each class of JIRA endpoint allows in flight
+   */
+  int getJiraMinConcurrentRequests();
+
+  /**
+   * How many times its lowest recent latency JIRA may take before fewer requests are sent at once
+   */
+  double getJiraLatencyTolerance();
+
 
   /**
    * Password of keystore for authentication with Symphony
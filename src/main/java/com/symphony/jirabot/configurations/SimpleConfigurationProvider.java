@@ -24,6 +24,8 @@
 
 package com.symphony.jirabot.configurations;
 
+import com.symphony.jirabot.clients.JiraEndpointClass;
+
 import java.util.Collections;
 import java.util.Set;
 
@@ -42,6 +44,10 @@ public class SimpleConfigurationProvider implements IConfigurationProvider {
 
   public int getJiraRefreshRateInSeconds() { return 10 * 60 * 24; }
 
+  public int getJiraMinRefreshRateInSeconds() { return 30; }
+
+  public int getJiraMaxRefreshRateInSeconds() { return 15 * 60; }
+
   public Set<String> getJiraProjectsOfInterest() {
     return Collections.singleton("Core");
   }
@@ -50,10 +56,209 @@ public class SimpleConfigurationProvider implements IConfigurationProvider {
     return 10; //Usually 1000
   }
 
+  public int getJiraProjectCatalogueTtlInSeconds() {
+    return 60 * 60;
+  }
+
   public int getMaxResultsForGettingJiraIssuesPerProject() {
     return 500; //Usually 1000
   }
 
+  public Set<String> getJiraExtraIssueFields() {
+    return Collections.emptySet();
+  }
+
+  public String getChangeClassificationFile() {
+    return null;
+  }
+
+  public int getJiraPollingThreadCount() {
+    return 4;
+  }
+
+  public boolean isJiraMultiProjectSearchEnabled() {
+    return true;
+  }
+
+  public String getJiraWatermarkFilePath() {
+    return "jira-watermarks.log";
+  }
+
+  public int getMaxConcurrentChangeLogFetches() {
+    return 4;
+  }
+
+  public String getDeliveredEventIndexPath() {
+    return "jira-delivered-events";
+  }
+
+  public long getDeliveredEventIndexCapacity() {
+    return 100000;
+  }
+
+  public boolean isJiraWebhookEnabled() {
+    return false;
+  }
+
+  public String getJiraWebhookBindAddress() {
+    return "127.0.0.1";
+  }
+
+  public int getJiraWebhookPort() {
+    return 8090;
+  }
+
+  public String getJiraWebhookPath() {
+    return "/jira/webhook";
+  }
+
+  public String getJiraWebhookSecret() {
+    return null;
+  }
+
+  public int getJiraWebhookQueueCapacity() {
+    return 256;
+  }
+
+  public int getJiraWebhookMaxBodyBytes() {
+    return 1024 * 1024;
+  }
+
+  public int getJiraReconciliationRefreshRateInSeconds() {
+    return 60 * 60;
+  }
+
+  public int getPipelineClassifyThreadCount() {
+    return 2;
+  }
+
+  public int getPipelineFormatThreadCount() {
+    return 2;
+  }
+
+  public int getPipelineDeliverThreadCount() {
+    return 4;
+  }
+
+  public int getPipelineQueueCapacity() {
+    return 256;
+  }
+
+  public int getPipelineDrainTimeoutInSeconds() {
+    return 10 * 60;
+  }
+
+  public int getJiraMaxConnectionsPerRoute() {
+    return 8;
+  }
+
+  public int getJiraKeepAliveInSeconds() {
+    return 30;
+  }
+
+  public int getJiraConnectTimeoutInMillis() {
+    return 5000;
+  }
+
+  public int getJiraReadTimeoutInMillis() {
+    return 30000;
+  }
+
+  public int getJiraMaxRequestAttempts() {
+    return 4;
+  }
+
+  public int getJiraRetryBaseDelayInMillis() {
+    return 500;
+  }
+
+  public int getJiraRetryMaxDelayInMillis() {
+    return 30000;
+  }
+
+  public int getJiraCircuitBreakerFailureThreshold() {
+    return 5;
+  }
+
+  public int getJiraCircuitBreakerOpenInSeconds() {
+    return 60;
+  }
+
+  public int getJiraUserCacheCapacity() {
+    return 10000;
+  }
+
+  public int getJiraUserCacheTtlInSeconds() {
+    return 60 * 60;
+  }
+
+  public int getJiraUserCacheNegativeTtlInSeconds() {
+    return 5 * 60;
+  }
+
+  public double getJiraRequestsPerSecond(JiraEndpointClass endpointClass) {
+    switch (endpointClass) {
+      case SEARCH:
+        return 2;
+      case CHANGELOG:
+        return 5;
+      case USER:
+        return 5;
+      case PROJECT:
+        return 0.5;
+      default:
+        return 2;
+    }
+  }
+
+  public int getJiraRequestBurst(JiraEndpointClass endpointClass) {
+    switch (endpointClass) {
+      case SEARCH:
+        return 4;
+      case CHANGELOG:
+        return 10;
+      case USER:
+        return 10;
+      case PROJECT:
+        return 2;
+      default:
+        return 4;
+    }
+  }
+
+  public int getJiraResponseCacheTtlInSeconds(JiraEndpointClass endpointClass) {
+    switch (endpointClass) {
+      case PROJECT:
+        return 0;
+      default:
+        return -1;
+    }
+  }
+
+  public long getJiraResponseCacheMaxBytes() {
+    return 16L * 1024 * 1024;
+  }
+
+  public String getJiraResponseCacheDirectory() {
+    return null;
+  }
+
+  public long getJiraResponseCacheMaxBytesOnDisk() {
+    return 256L * 1024 * 1024;
+  }
+
+  public int getJiraInitialConcurrentRequests() {
+    return 4;
+  }
+
+  public int getJiraMinConcurrentRequests() {
+    return 1;
+  }
+
+  public double getJiraLatencyTolerance() {
+    return 2;
+  }
+
   public String getJiraBaseURL() {
     return "https://perzoinc.atlassian.net";
   }
@@ -55,7 +55,10 @@ public class MessageML {
     public MessageML() {
 
         try {
-            this.documentBuilder = builderFactory.newDocumentBuilder();
+            //DocumentBuilderFactory is not thread safe, and projects are formatted concurrently
+            synchronized(builderFactory) {
+                this.documentBuilder = builderFactory.newDocumentBuilder();
+            }
             this.document = this.documentBuilder.newDocument();
 
             this.rootElement = this.document.createElement("messageML");
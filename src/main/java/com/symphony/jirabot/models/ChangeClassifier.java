@@ -0,0 +1,371 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.models;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Classifies the changes of JIRA issues by priority, sentiment and emoji, using rules read from
+ * jira-change-classification.properties (see that file for their format).
+ *
+ * A classification is packed in an int: one bit per Item.Priority, then one bit per
+ * Item.Sentiment, then the ordinal of the Item.SpecialEmoji.
+ */
+public final class ChangeClassifier {
+
+    private static final String RESOURCE = "/jira-change-classification.properties";
+
+    private static final String ANY = "*";
+    private static final String STATUS_FIELD = "status";
+
+    private static final int SENTIMENT_SHIFT = JiraIssue.Item.Priority.values().length;
+    private static final int EMOJI_SHIFT =
+        SENTIMENT_SHIFT + JiraIssue.Item.Sentiment.values().length;
+
+    private static final JiraIssue.Item.SpecialEmoji[] EMOJIS =
+        JiraIssue.Item.SpecialEmoji.values();
+
+    private static volatile ChangeClassifier defaultClassifier;
+
+    /**
+     * Number of distinct field names whose rules are remembered as spelled, so the field name
+     * does not have to be normalized again
+     */
+    private static final int MAX_FIELD_NAMES = 1024;
+
+    /**
+     * Rules by normalized field name
+     */
+    private final Map<String, FieldRules> rulesByFieldId = new HashMap<String, FieldRules>();
+    private final FieldRules defaultRules;
+
+    /**
+     * Rules by field name as JIRA spells it
+     */
+    private final ConcurrentMap<String, FieldRules> rulesByFieldName =
+        new ConcurrentHashMap<String, FieldRules>();
+
+    /**
+     * Builds a classifier from rules in the format of jira-change-classification.properties
+     *
+     * @throws IllegalArgumentException If a rule is invalid
+     */
+    public ChangeClassifier(Properties rules) {
+        if (!rules.containsKey("default")) {
+            throw new IllegalArgumentException("Change classification rules without a default");
+        }
+        this.defaultRules = new FieldRules(parse("default", rules.getProperty("default")));
+
+        // sorted, as Properties keeps no order and the first matching contains rule wins
+        for (String key : new TreeSet<String>(rules.stringPropertyNames())) {
+            String value = rules.getProperty(key);
+            if (key.equals("default")) {
+                continue;
+            } else if (key.startsWith("status.") && key.contains("->")) {
+                String transition = key.substring("status.".length());
+                int arrow = transition.indexOf("->");
+                getOrAddRules(STATUS_FIELD).addTransition(transition.substring(0, arrow),
+                    transition.substring(arrow + 2), parse(key, value));
+            } else if (key.startsWith("contains.") && key.indexOf('.', "contains.".length()) > 0) {
+                int dot = key.indexOf('.', "contains.".length());
+                getOrAddRules(normalize(key.substring("contains.".length(), dot)))
+                    .containsRules.add(new ContainsRule(key.substring(dot + 1), parse(key, value)));
+            } else if (key.startsWith("field.")) {
+                getOrAddRules(normalize(key.substring("field.".length()))).classification =
+                    parse(key, value);
+            } else {
+                throw new IllegalArgumentException("Unknown change classification rule: " + key);
+            }
+        }
+    }
+
+    private FieldRules getOrAddRules(String fieldId) {
+        FieldRules fieldRules = rulesByFieldId.get(fieldId);
+        if (fieldRules == null) {
+            fieldRules = new FieldRules(defaultRules.classification);
+            rulesByFieldId.put(fieldId, fieldRules);
+        }
+        return fieldRules;
+    }
+
+    /**
+     * Classifier used for changes built without one: the built-in rules, unless replaced with
+     * setDefault
+     */
+    public static ChangeClassifier getDefault() {
+        ChangeClassifier classifier = defaultClassifier;
+        if (classifier == null) {
+            synchronized (ChangeClassifier.class) {
+                if (defaultClassifier == null) {
+                    defaultClassifier = new ChangeClassifier(loadBuiltInRules());
+                }
+                classifier = defaultClassifier;
+            }
+        }
+        return classifier;
+    }
+
+    public static void setDefault(ChangeClassifier classifier) {
+        defaultClassifier = classifier;
+    }
+
+    /**
+     * Builds a classifier from the built-in rules, with the rules of a properties file added to
+     * or replacing them
+     */
+    public static ChangeClassifier withRulesFrom(File file) {
+        Properties rules = loadBuiltInRules();
+        try (InputStream input = new FileInputStream(file)) {
+            rules.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read change classification rules from " + file,
+                e);
+        }
+        return new ChangeClassifier(rules);
+    }
+
+    /**
+     * Classifies a change of an issue
+     *
+     * @param field Field changed
+     * @param fromString Previous value of the field, as displayed
+     * @param toString New value of the field, as displayed
+     * @return The packed classification
+     */
+    public int classify(String field, String fromString, String toString) {
+        if (field == null) {
+            return defaultRules.classification;
+        }
+        FieldRules fieldRules = rulesByFieldName.get(field);
+        if (fieldRules == null) {
+            fieldRules = rulesByFieldId.get(normalize(field));
+            if (fieldRules == null) {
+                fieldRules = defaultRules;
+            }
+            if (rulesByFieldName.size() < MAX_FIELD_NAMES) {
+                rulesByFieldName.put(field, fieldRules);
+            }
+        }
+        return fieldRules.classify(fromString, toString);
+    }
+
+    /**
+     * Packs a classification
+     */
+    public static int pack(EnumSet<JiraIssue.Item.Priority> priority,
+                           EnumSet<JiraIssue.Item.Sentiment> sentiment,
+                           JiraIssue.Item.SpecialEmoji emoji) {
+        return mask(priority) | (mask(sentiment) << SENTIMENT_SHIFT)
+            | (emoji.ordinal() << EMOJI_SHIFT);
+    }
+
+    /**
+     * True if the classification has every priority of the set
+     */
+    public static boolean hasPriorities(int classification,
+                                        EnumSet<JiraIssue.Item.Priority> priority) {
+        int mask = mask(priority);
+        return (classification & mask) == mask;
+    }
+
+    public static boolean hasPriority(int classification, JiraIssue.Item.Priority priority) {
+        return (classification & (1 << priority.ordinal())) != 0;
+    }
+
+    /**
+     * True if the classification has every sentiment of the set
+     */
+    public static boolean hasSentiments(int classification,
+                                        EnumSet<JiraIssue.Item.Sentiment> sentiment) {
+        int mask = mask(sentiment) << SENTIMENT_SHIFT;
+        return (classification & mask) == mask;
+    }
+
+    public static boolean hasSentiment(int classification, JiraIssue.Item.Sentiment sentiment) {
+        return (classification & (1 << (SENTIMENT_SHIFT + sentiment.ordinal()))) != 0;
+    }
+
+    public static JiraIssue.Item.SpecialEmoji getEmoji(int classification) {
+        return EMOJIS[classification >>> EMOJI_SHIFT];
+    }
+
+    private static int mask(EnumSet<? extends Enum<?>> values) {
+        int mask = 0;
+        for (Enum<?> value : values) {
+            mask |= 1 << value.ordinal();
+        }
+        return mask;
+    }
+
+    private static String normalize(String field) {
+        return field.toLowerCase(Locale.ROOT);
+    }
+
+    private static int parse(String key, String value) {
+        String[] parts = value.split(",");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Invalid change classification for " + key + ": "
+                + value + ", expected <priority>,<sentiment>[,<emoji>]");
+        }
+
+        EnumSet<JiraIssue.Item.Priority> priority;
+        switch (parts[0].trim()) {
+            case "LOW":
+                priority = JiraIssue.Item.Priority.LOW;
+                break;
+            case "MEDIUM":
+                priority = JiraIssue.Item.Priority.MEDIUM;
+                break;
+            case "HIGH":
+                priority = JiraIssue.Item.Priority.HIGH;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid priority for " + key + ": " + parts[0]);
+        }
+
+        EnumSet<JiraIssue.Item.Sentiment> sentiment;
+        switch (parts[1].trim()) {
+            case "GREAT":
+                sentiment = JiraIssue.Item.Sentiment.GREAT;
+                break;
+            case "GOOD":
+                sentiment = JiraIssue.Item.Sentiment.GOOD;
+                break;
+            case "NEUTRAL":
+                sentiment = JiraIssue.Item.Sentiment.NEUTRAL;
+                break;
+            case "BAD":
+                sentiment = JiraIssue.Item.Sentiment.BAD;
+                break;
+            default:
+                throw new IllegalArgumentException(
+                    "Invalid sentiment for " + key + ": " + parts[1]);
+        }
+
+        JiraIssue.Item.SpecialEmoji emoji = JiraIssue.Item.SpecialEmoji.None;
+        if (parts.length == 3) {
+            try {
+                emoji = JiraIssue.Item.SpecialEmoji.valueOf(parts[2].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid emoji for " + key + ": " + parts[2]);
+            }
+        }
+
+        return pack(priority, sentiment, emoji);
+    }
+
+    private static Properties loadBuiltInRules() {
+        Properties rules = new Properties();
+        try (InputStream input = ChangeClassifier.class.getResourceAsStream(RESOURCE)) {
+            if (input == null) {
+                throw new IllegalStateException("Missing resource " + RESOURCE);
+            }
+            rules.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read " + RESOURCE, e);
+        }
+        return rules;
+    }
+
+    /**
+     * The rules of one field, most specific first
+     */
+    private static class FieldRules {
+
+        /**
+         * Classification of transitions by new value, then by previous value
+         */
+        private final Map<String, Map<String, Integer>> transitions =
+            new HashMap<String, Map<String, Integer>>();
+        private final List<ContainsRule> containsRules = new ArrayList<ContainsRule>();
+        private int classification;
+
+        private FieldRules(int classification) {
+            this.classification = classification;
+        }
+
+        private void addTransition(String from, String to, int transitionClassification) {
+            Map<String, Integer> byFrom = transitions.get(to);
+            if (byFrom == null) {
+                byFrom = new HashMap<String, Integer>();
+                transitions.put(to, byFrom);
+            }
+            byFrom.put(from, transitionClassification);
+        }
+
+        private int classify(String from, String to) {
+            if (!transitions.isEmpty()) {
+                Integer transition = findFrom(to == null ? null : transitions.get(to), from);
+                if (transition == null) {
+                    transition = findFrom(transitions.get(ANY), from);
+                }
+                if (transition != null) {
+                    return transition;
+                }
+            }
+            if (to != null) {
+                for (int i = 0; i < containsRules.size(); i++) {
+                    ContainsRule rule = containsRules.get(i);
+                    if (to.contains(rule.text)) {
+                        return rule.classification;
+                    }
+                }
+            }
+            return classification;
+        }
+
+        private static Integer findFrom(Map<String, Integer> byFrom, String from) {
+            if (byFrom == null) {
+                return null;
+            }
+            Integer classification = from == null ? null : byFrom.get(from);
+            return classification != null ? classification : byFrom.get(ANY);
+        }
+    }
+
+    private static class ContainsRule {
+        private final String text;
+        private final int classification;
+
+        private ContainsRule(String text, int classification) {
+            this.text = text;
+            this.classification = classification;
+        }
+    }
+}
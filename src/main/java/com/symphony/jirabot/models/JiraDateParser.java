@@ -0,0 +1,160 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.models;
+
+/**
+ * Parses the timestamps JIRA returns, such as 2016-06-15T13:12:41.000-0400, into epoch millis.
+ *
+ * Works on the characters directly, allocating nothing unless the input is invalid, and is safe
+ * to share between threads. Accepts the yyyy-MM-dd'T'HH:mm:ss.SSSZ format JIRA uses, plus the
+ * +hh:mm and Z offsets of ISO-8601.
+ */
+public final class JiraDateParser {
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private static final int MAX_OFFSET_MINUTES = 18 * 60;
+
+    private JiraDateParser() {
+    }
+
+    /**
+     * @return Milliseconds since the epoch
+     * @throws IllegalArgumentException If the text is not a valid timestamp in that format
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            throw new IllegalArgumentException("Missing JIRA timestamp");
+        }
+        if (text.length() < 24) {
+            throw invalid(text);
+        }
+
+        int year = digits(text, 0, 4);
+        separator(text, 4, '-');
+        int month = digits(text, 5, 2);
+        separator(text, 7, '-');
+        int day = digits(text, 8, 2);
+        separator(text, 10, 'T');
+        int hour = digits(text, 11, 2);
+        separator(text, 13, ':');
+        int minute = digits(text, 14, 2);
+        separator(text, 16, ':');
+        int second = digits(text, 17, 2);
+        separator(text, 19, '.');
+        int millis = digits(text, 20, 3);
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour > 23
+            || minute > 59 || second > 59) {
+            throw invalid(text);
+        }
+
+        int offsetMinutes = parseOffset(text, 23);
+
+        return daysSinceEpoch(year, month, day) * MILLIS_PER_DAY
+            + ((hour * 60 + minute - offsetMinutes) * 60 + second) * 1000L + millis;
+    }
+
+    /**
+     * Reads the offset from UTC at the end of the text: Z, +hhmm or +hh:mm
+     *
+     * @return Offset in minutes
+     */
+    private static int parseOffset(CharSequence text, int start) {
+        int length = text.length();
+        char sign = text.charAt(start);
+        if (sign == 'Z' && length == start + 1) {
+            return 0;
+        }
+        if ((sign != '+' && sign != '-') || (length != start + 5 && length != start + 6)) {
+            throw invalid(text);
+        }
+
+        int hours = digits(text, start + 1, 2);
+        int minutesAt = start + 3;
+        if (length == start + 6) {
+            separator(text, minutesAt++, ':');
+        }
+        int minutes = digits(text, minutesAt, 2);
+
+        int offsetMinutes = hours * 60 + minutes;
+        if (minutes > 59 || offsetMinutes > MAX_OFFSET_MINUTES) {
+            throw invalid(text);
+        }
+        return sign == '-' ? -offsetMinutes : offsetMinutes;
+    }
+
+    /**
+     * Days from 1970-01-01 to a date of the proleptic Gregorian calendar
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        // counts years from March, so the leap day comes last
+        int marchYear = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(marchYear, 400);
+        int yearOfEra = marchYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leapYear = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw invalid(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void separator(CharSequence text, int index, char expected) {
+        if (text.charAt(index) != expected) {
+            throw invalid(text);
+        }
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text) {
+        return new IllegalArgumentException("Invalid JIRA timestamp: " + text);
+    }
+}
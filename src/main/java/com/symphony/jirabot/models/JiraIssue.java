@@ -29,33 +29,46 @@ package com.symphony.jirabot.models; /**
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Represents a com.symphony.jirabot.models.JiraIssue
  */
 public class JiraIssue {
 
-    private String id;
-    private String self;
-    private String key;
+    /**
+     * The issue fields read by the constructor, and so the only ones a search needs to return
+     */
+    public static final String[] FIELDS = {"summary", "created", "updated", "project", "watches",
+        "priority", "status", "assignee", "creator", "reporter"};
+
+    private final String id;
+    private final String self;
+    private final String key;
 
-    private Date created;
-    private Date updated;
+    // kept as epoch millis, as a Date handed out could be changed by its receiver
+    private final long createdMillis;
+    private final long updatedMillis;
 
-    private String watchesLink;
-    private String summary;
+    private final String watchesLink;
+    private final String summary;
 
-    private Priority priority;
-    private Priority status;
+    private final String projectKey;
+    private final String projectName;
 
-    private JiraUser assignee;
-    private JiraUser creator;
-    private JiraUser reporter;
+    private final Priority priority;
+    private final Priority status;
 
-    private ChangeLog changeLog;
+    private final JiraUser assignee;
+    private final JiraUser creator;
+    private final JiraUser reporter;
+
+    private final ChangeLog changeLog;
 
     public JiraIssue(JSONObject object) {
 
@@ -70,10 +83,20 @@ public class JiraIssue {
         this.changeLog = new ChangeLog(object.getJSONObject("changelog"));
 
         JSONObject fields = object.getJSONObject("fields");
-        this.created = getDateFromUSLocale(fields.get("created").toString());
-        this.updated = getDateFromUSLocale(fields.get("updated").toString());
+        this.createdMillis = JiraDateParser.parse(fields.get("created").toString());
+        this.updatedMillis = JiraDateParser.parse(fields.get("updated").toString());
         this.summary = fields.get("summary").toString();
 
+        if(fields.has("project")) {
+            JSONObject project = fields.getJSONObject("project");
+            this.projectKey = project.optString("key", null);
+            this.projectName = project.optString("name", null);
+        }
+        else {
+            this.projectKey = null;
+            this.projectName = null;
+        }
+
         JSONObject watches = fields.getJSONObject("watches");
         this.watchesLink = watches.get("self").toString();
 
@@ -85,17 +108,42 @@ public class JiraIssue {
         }
         this.status = new Priority(fields.getJSONObject("status"));
 
-        if(fields.has("assignee")) {
-            if(isValidText(fields.get("assignee").toString())) {
-                this.assignee = new JiraUser(fields.getJSONObject("assignee"));
-            }
+        if(fields.has("assignee") && isValidText(fields.get("assignee").toString())) {
+            this.assignee = JiraUserPool.SHARED.intern(
+                new JiraUser(fields.getJSONObject("assignee")));
         }
         else {
             this.assignee = null;
         }
 
-        this.creator = new JiraUser(fields.getJSONObject("creator"));
-        this.reporter = new JiraUser(fields.getJSONObject("reporter"));
+        this.creator =
+            JiraUserPool.SHARED.intern(new JiraUser(fields.getJSONObject("creator")));
+        this.reporter =
+            JiraUserPool.SHARED.intern(new JiraUser(fields.getJSONObject("reporter")));
+    }
+
+    /**
+     * Used by JiraIssueDecoder, which reads the values straight from the JSON token stream
+     */
+    JiraIssue(String id, String self, String key, Date created, Date updated, String summary,
+              String projectKey, String projectName, String watchesLink, Priority priority,
+              Priority status, JiraUser assignee, JiraUser creator, JiraUser reporter,
+              ChangeLog changeLog) {
+        this.id = id;
+        this.self = self;
+        this.key = key;
+        this.createdMillis = created.getTime();
+        this.updatedMillis = updated.getTime();
+        this.summary = summary;
+        this.projectKey = projectKey;
+        this.projectName = projectName;
+        this.watchesLink = watchesLink;
+        this.priority = priority;
+        this.status = status;
+        this.assignee = assignee;
+        this.creator = creator;
+        this.reporter = reporter;
+        this.changeLog = changeLog;
     }
 
     public String getId() {
@@ -111,11 +159,11 @@ public class JiraIssue {
     }
 
     public Date getCreated() {
-        return created;
+        return new Date(createdMillis);
     }
 
     public Date getUpdated() {
-        return updated;
+        return new Date(updatedMillis);
     }
 
     public String getWatchesLink() {
@@ -126,6 +174,20 @@ public class JiraIssue {
         return summary;
     }
 
+    /**
+     * Key of the project the issue belongs to, or null if the project field was not returned
+     */
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    /**
+     * Name of the project the issue belongs to, or null if the project field was not returned
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
     public Priority getPriority() {
         return priority;
     }
@@ -150,26 +212,45 @@ public class JiraIssue {
         return changeLog;
     }
 
+    /**
+     * Returns a copy of this issue with another changelog, e.g. one holding fewer histories
+     */
+    public JiraIssue withChangeLog(ChangeLog changeLog) {
+        return new JiraIssue(id, self, key, getCreated(), getUpdated(), summary, projectKey,
+            projectName, watchesLink, priority, status, assignee, creator, reporter, changeLog);
+    }
+
 
     /**
      * Represents the ChangeLog (History) for each Issue
      */
-    public class ChangeLog {
-        private int startAt;
-        private int maxResults;
-        private int total;
-        private History[] histories;
+    public static class ChangeLog {
+        private final int startAt;
+        private final int maxResults;
+        private final int total;
+        private final int numHistoriesReturned;
+        private final History[] histories;
 
         public ChangeLog(JSONObject object) {
             this.startAt = object.getInt("startAt");
             this.maxResults = object.getInt("maxResults");
             this.total = object.getInt("total");
 
-            JSONArray histories = object.getJSONArray("histories");
-            this.histories = new History[histories.length()];
-            for(int i = 0; i < histories.length(); i++) {
-                this.histories[i] = new History(histories.getJSONObject(i));
-            }
+            this.histories = toHistories(object.getJSONArray("histories"));
+            this.numHistoriesReturned = this.histories.length;
+        }
+
+        /**
+         * @param numHistoriesReturned Number of histories JIRA returned, which is more than the
+         * histories kept when old ones were skipped
+         */
+        ChangeLog(int startAt, int maxResults, int total, int numHistoriesReturned,
+                  History[] histories) {
+            this.startAt = startAt;
+            this.maxResults = maxResults;
+            this.total = total;
+            this.numHistoriesReturned = numHistoriesReturned;
+            this.histories = histories;
         }
 
         public int getStartAt() {
@@ -184,38 +265,92 @@ public class JiraIssue {
             return total;
         }
 
+        /**
+         * Number of histories JIRA returned in the issue's embedded changelog, starting at
+         * getStartAt(), whether or not they were kept
+         */
+        public int getNumHistoriesReturned() {
+            return numHistoriesReturned;
+        }
+
+        /**
+         * The histories, oldest first. The array is shared and must not be modified.
+         */
         public History[] getHistories() {
             return histories;
         }
 
-        public void setHistories(History[] histories) {
-            this.histories = histories;
+        /**
+         * Returns a copy of this changelog holding other histories, e.g. some of its own
+         */
+        public ChangeLog withHistories(History[] histories) {
+            return new ChangeLog(startAt, maxResults, total, numHistoriesReturned, histories);
+        }
+
+        /**
+         * True when JIRA returned fewer histories than the issue has, and the rest have to be
+         * fetched from the issue's changelog endpoint
+         */
+        public boolean isTruncated() {
+            return this.total > this.numHistoriesReturned;
+        }
+
+        /**
+         * Returns a copy of this changelog with histories fetched separately (e.g. from the
+         * changelog endpoint) added, skipping the ones already present, ordered by creation date
+         */
+        public ChangeLog withMoreHistories(History[] moreHistories) {
+            Map<String, History> historiesById = new LinkedHashMap<String, History>();
+            for(History history : this.histories) {
+                historiesById.put(history.getId(), history);
+            }
+            for(History history : moreHistories) {
+                if(!historiesById.containsKey(history.getId())) {
+                    historiesById.put(history.getId(), history);
+                }
+            }
+
+            History[] merged = historiesById.values().toArray(new History[historiesById.size()]);
+            Arrays.sort(merged, new Comparator<History>() {
+                public int compare(History first, History second) {
+                    return first.getCreated().compareTo(second.getCreated());
+                }
+            });
+            return withHistories(merged);
+        }
+
+        private static History[] toHistories(JSONArray histories) {
+            History[] result = new History[histories.length()];
+            for(int i = 0; i < histories.length(); i++) {
+                result[i] = new History(histories.getJSONObject(i));
+            }
+            return result;
         }
     }
 
     /**
      * Represents a History object in an Issue's ChangeLog
      */
-    public class History {
-        private String id;
-        private Date created;
-        private JiraUser author;
-        private Item[] items;
+    public static class History {
+        private final String id;
+        private final long createdMillis;
+        private final JiraUser author;
+        private final Item[] items;
 
         public History(JSONObject object) {
             this.id = object.getString("id");
-            this.created = getDateFromUSLocale(object.getString("created"));
+            this.createdMillis = JiraDateParser.parse(object.getString("created"));
 
             //The default condition
             if(object.has("author")) {
-                this.author = new JiraUser(object.getJSONObject("author"));
+                this.author =
+                    JiraUserPool.SHARED.intern(new JiraUser(object.getJSONObject("author")));
             }
             //Automated testing conditions ie. issue:
             else if(object.has("historyMetadata")) {
                 JSONObject historyData = object.getJSONObject("historyMetadata");
-                JSONObject actor = historyData.getJSONObject("actor");
-                this.author = new JiraUser();
-                this.author.setDisplayName(historyData.get("emailDescription").toString());
+                this.author =
+                    new JiraUser(null, historyData.get("emailDescription").toString(), null);
             }
             else {
                 this.author = null;
@@ -228,18 +363,28 @@ public class JiraIssue {
             }
         }
 
+        History(String id, Date created, JiraUser author, Item[] items) {
+            this.id = id;
+            this.createdMillis = created.getTime();
+            this.author = author;
+            this.items = items;
+        }
+
         public String getId() {
             return id;
         }
 
         public Date getCreated() {
-            return created;
+            return new Date(createdMillis);
         }
 
         public JiraUser getAuthor() {
             return author;
         }
 
+        /**
+         * The items of the history. The array is shared and must not be modified.
+         */
         public Item[] getItems() {
             return items;
         }
@@ -281,16 +426,17 @@ public class JiraIssue {
             None;
         }
 
-        private String field;
-        private String fieldType;
-        private String from;
-        private String fromString;
-        private String to;
-        private String toString;
+        private final String field;
+        private final String fieldType;
+        private final String from;
+        private final String fromString;
+        private final String to;
+        private final String toString;
 
-        private EnumSet<Item.Priority> priority;
-        private EnumSet<Item.Sentiment> sentiment;
-        private Item.SpecialEmoji specialEmoji = SpecialEmoji.None;
+        /**
+         * Priority, sentiment and emoji, packed by ChangeClassifier
+         */
+        private final int classification;
 
         public Item(JSONObject object) {
 
@@ -301,112 +447,29 @@ public class JiraIssue {
             this.to = object.has("to") ? object.get("to").toString() : null;
             this.toString = object.has("toString") ? object.get("toString").toString() : null;
 
-            this.assignPriority();
+            this.classification = classify(this.field, this.fromString, this.toString);
         }
 
-        private void assignPriority() {
-
-            //For changes in status
-            if(this.field.equalsIgnoreCase("status")) {
-                if(this.toString.equals("Open")) {
-                    this.priority = Priority.LOW;
-                    this.sentiment = Sentiment.NEUTRAL;
-                }
-                else if(this.toString.equals("In Progress")) {
-                    this.priority = Priority.MEDIUM;
-                    this.sentiment = Sentiment.GOOD;
-
-                    if(this.fromString.equals("Reopened")) {
-                        this.priority = Priority.HIGH;
-                        this.sentiment = Sentiment.BAD;
-                        this.specialEmoji = SpecialEmoji.Sob_And_Face_Palm;
-                    }
-                }
-                else if(this.toString.equals("Resolved")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.GREAT;
-                }
-                else if(this.toString.equals("Reopened")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.BAD;
-                    this.specialEmoji = SpecialEmoji.Face_Palm;
-                }
-                else if(this.toString.equals("Closed")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.GREAT;
-                }
-                else if(this.toString.equals("ready for code review")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.GREAT;
-                }
-                else if(this.toString.equals("Ready for QA")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.GREAT;
-                }
-                else {
-                    this.priority = Priority.LOW;
-                    this.sentiment = Sentiment.GOOD;
-                }
-            }
-
-            //Assigned to a new person
-            else if(this.field.equalsIgnoreCase("assignee")) {
-                this.priority = Priority.MEDIUM;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
-
-            //Adding/removing a key
-            else if(this.field.equalsIgnoreCase("key")) {
-                this.priority = Priority.LOW;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
-
-            //Adding/removing a label
-            else if(this.field.equalsIgnoreCase("labels")) {
-                this.priority = Priority.LOW;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
-
-            //Changing projects
-            else if(this.field.equalsIgnoreCase("project")) {
-                this.priority = Priority.LOW;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
+        Item(String field, String fieldType, String from, String fromString, String to,
+             String toString) {
+            this.field = field;
+            this.fieldType = fieldType;
+            this.from = from;
+            this.fromString = fromString;
+            this.to = to;
+            this.toString = toString;
 
-            //Git commits, usually
-            else if(this.field.equalsIgnoreCase("version")) {
-                this.priority = Priority.MEDIUM;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
-
-            //Change in priority
-            else if(this.field.equalsIgnoreCase("rank")) {
-                if(this.toString.contains("higher")) {
-                    this.priority = Priority.HIGH;
-                    this.sentiment = Sentiment.BAD;
-                    this.specialEmoji = SpecialEmoji.Red_Exclamation_Mark;
-                }
-                else {
-                    this.priority = Priority.LOW;
-                    this.sentiment = Sentiment.GOOD;
-                }
-            }
+            this.classification = classify(this.field, this.fromString, this.toString);
+        }
 
-            //Linked to something else
-            else if(this.field.equalsIgnoreCase("Link")) {
-                this.priority = Priority.MEDIUM;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
-            else {
-                this.priority = Priority.LOW;
-                this.sentiment = Sentiment.NEUTRAL;
-            }
+        private static int classify(String field, String fromString, String toString) {
+            return ChangeClassifier.getDefault().classify(field, fromString, toString);
         }
 
         public String getEmojiForSentiment() {
 
             //SpecialEmoji overrides all existing
-            switch(this.specialEmoji) {
+            switch(ChangeClassifier.getEmoji(this.classification)) {
                 case Red_Exclamation_Mark:
                     return ":exclamation:";
                 case Face_Palm:
@@ -441,19 +504,23 @@ public class JiraIssue {
         }
 
         public boolean isSentimental(EnumSet<Item.Sentiment> sentiment) {
-            return this.sentiment.containsAll(sentiment);
+            return ChangeClassifier.hasSentiments(this.classification, sentiment);
         }
 
         public boolean isSentimental(Item.Sentiment sentiment) {
-            return this.sentiment.contains(sentiment);
+            return ChangeClassifier.hasSentiment(this.classification, sentiment);
         }
 
         public boolean isImportant(EnumSet<Item.Priority> priority) {
-            return this.priority.containsAll(priority);
+            return ChangeClassifier.hasPriorities(this.classification, priority);
         }
 
         public boolean isImportant(Item.Priority priority) {
-            return this.priority.contains(priority);
+            return ChangeClassifier.hasPriority(this.classification, priority);
+        }
+
+        public Item.SpecialEmoji getSpecialEmoji() {
+            return ChangeClassifier.getEmoji(this.classification);
         }
 
         public String getField() {
@@ -508,14 +575,19 @@ public class JiraIssue {
     }
 
     public static class Priority {
-        private String name;
-        private String id;
+        private final String name;
+        private final String id;
 
         public Priority(JSONObject object) {
             this.name = object.get("name").toString();
             this.id = object.get("id").toString();
         }
 
+        Priority(String name, String id) {
+            this.name = name;
+            this.id = id;
+        }
+
         public String getName() {
             return name;
         }
@@ -530,15 +602,13 @@ public class JiraIssue {
         }
     }
 
+    /**
+     * Parses a JIRA timestamp, such as 2016-06-15T13:12:41.000-0400
+     *
+     * @throws IllegalArgumentException If the timestamp is missing or invalid
+     */
     public static Date getDateFromUSLocale(String date){
-        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
-
-        try {
-            return formatter.parse(date);
-        }
-        catch(Exception e) {
-            return new Date();
-        }
+        return new Date(JiraDateParser.parse(date));
     }
 
     private static boolean isValidText(String text) {
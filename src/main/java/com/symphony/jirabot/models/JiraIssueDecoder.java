@@ -0,0 +1,486 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.models;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Builds JiraIssues straight from a JSON token stream, without building a tree first.
+ *
+ * Reads the same fields as the JiraIssue(JSONObject) constructor. Fields it does not know are
+ * skipped, and users are shared through a JiraUserPool. An issue missing a field it cannot do
+ * without, or with an invalid timestamp, is consumed entirely before IllegalArgumentException is
+ * thrown, so the parser is left at the next issue.
+ */
+public class JiraIssueDecoder {
+
+    private static final JiraIssue.History[] NO_HISTORIES = new JiraIssue.History[0];
+    private static final JiraIssue.Item[] NO_ITEMS = new JiraIssue.Item[0];
+
+    private final JiraUserPool userPool;
+
+    /**
+     * Decoder sharing users through JiraUserPool.SHARED
+     */
+    public JiraIssueDecoder() {
+        this(JiraUserPool.SHARED);
+    }
+
+    public JiraIssueDecoder(JiraUserPool userPool) {
+        this.userPool = userPool;
+    }
+
+    /**
+     * Reads an issue, with the parser on its START_OBJECT. Leaves the parser on its END_OBJECT,
+     * even when the issue is invalid.
+     *
+     * @throws IllegalArgumentException If the issue lacks a field the bot needs, or has an invalid
+     * timestamp
+     */
+    public JiraIssue decodeIssue(JsonParser parser) throws IOException {
+        return decodeIssue(parser, null);
+    }
+
+    /**
+     * Reads an issue like decodeIssue(JsonParser), keeping only what changed after the cutoff of
+     * the issue's project. The changelog of an issue not updated after it is skipped without being
+     * read, and so are the histories created before it.
+     *
+     * @param cutoff Cutoff of each project, or null to keep the whole issue
+     * @return The issue, or null if it was not updated after the cutoff
+     */
+    public JiraIssue decodeIssue(JsonParser parser, Cutoff cutoff) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+
+        JsonStreamContext enclosing = parser.getParsingContext().getParent();
+        try {
+            return readIssue(parser, cutoff);
+        } catch (IllegalArgumentException invalidIssue) {
+            // skip the rest of the issue, however deep in it the problem was found
+            JsonToken token = parser.getCurrentToken();
+            while (token != null && parser.getParsingContext() != enclosing) {
+                token = parser.nextToken();
+            }
+            throw invalidIssue;
+        }
+    }
+
+    private JiraIssue readIssue(JsonParser parser, Cutoff cutoff) throws IOException {
+        String id = null;
+        String self = null;
+        String key = null;
+        IssueFields fields = null;
+        JiraIssue.ChangeLog changeLog = null;
+        TokenBuffer bufferedChangeLog = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("id".equals(name)) {
+                id = text(parser);
+            } else if ("self".equals(name)) {
+                self = text(parser);
+            } else if ("key".equals(name)) {
+                key = text(parser);
+            } else if ("fields".equals(name) && token == JsonToken.START_OBJECT) {
+                fields = decodeFields(parser);
+            } else if ("changelog".equals(name) && token == JsonToken.START_OBJECT) {
+                if (cutoff == null) {
+                    changeLog = decodeChangeLog(parser, Long.MIN_VALUE);
+                } else if (fields == null) {
+                    // the cutoff depends on the project, which comes with the fields
+                    bufferedChangeLog = new TokenBuffer(parser);
+                    bufferedChangeLog.copyCurrentStructure(parser);
+                } else if (isUpdatedAfter(fields, cutoff)) {
+                    changeLog = decodeChangeLog(parser, getUpdatedSince(fields, cutoff));
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (id == null || self == null || key == null) {
+            throw new IllegalArgumentException("issue without id, self or key: " + key);
+        }
+        if (fields == null || fields.created == null || fields.updated == null
+            || fields.status == null) {
+            throw new IllegalArgumentException("issue " + key + " is missing fields");
+        }
+        if (cutoff != null && !isUpdatedAfter(fields, cutoff)) {
+            return null;
+        }
+        if (bufferedChangeLog != null) {
+            JsonParser buffered = bufferedChangeLog.asParser();
+            buffered.nextToken();
+            changeLog = decodeChangeLog(buffered, getUpdatedSince(fields, cutoff));
+        }
+        if (changeLog == null) {
+            throw new IllegalArgumentException("issue " + key + " has no changelog");
+        }
+
+        return new JiraIssue(id, self, key, fields.created, fields.updated, fields.summary,
+            fields.projectKey, fields.projectName, fields.watchesLink, fields.priority,
+            fields.status, fields.assignee, fields.creator, fields.reporter, changeLog);
+    }
+
+    /**
+     * Reads an array of changelog histories, such as the values returned by the changelog
+     * endpoint, with the parser on its START_ARRAY
+     */
+    public JiraIssue.History[] decodeHistories(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_ARRAY);
+
+        List<JiraIssue.History> histories = new ArrayList<JiraIssue.History>();
+        readHistories(parser, Long.MIN_VALUE, histories);
+        return toArray(histories);
+    }
+
+    /**
+     * Adds the histories of the array the parser is on created after createdAfter
+     *
+     * @return Number of histories in the array, including the ones skipped
+     */
+    private int readHistories(JsonParser parser, long createdAfter,
+                              List<JiraIssue.History> histories) throws IOException {
+        int numHistories = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                numHistories++;
+                JiraIssue.History history = decodeHistory(parser, createdAfter);
+                if (history != null) {
+                    histories.add(history);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return numHistories;
+    }
+
+    private static JiraIssue.History[] toArray(List<JiraIssue.History> histories) {
+        return histories.isEmpty()
+            ? NO_HISTORIES : histories.toArray(new JiraIssue.History[histories.size()]);
+    }
+
+    private IssueFields decodeFields(JsonParser parser) throws IOException {
+        IssueFields fields = new IssueFields();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("created".equals(name)) {
+                fields.created = date(parser);
+            } else if ("updated".equals(name)) {
+                fields.updated = date(parser);
+            } else if ("summary".equals(name)) {
+                fields.summary = text(parser);
+            } else if ("project".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String projectField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("key".equals(projectField)) {
+                        fields.projectKey = nullableText(parser);
+                    } else if ("name".equals(projectField)) {
+                        fields.projectName = nullableText(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("watches".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String watchesField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("self".equals(watchesField)) {
+                        fields.watchesLink = text(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("priority".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.priority = decodePriority(parser);
+            } else if ("status".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.status = decodePriority(parser);
+            } else if ("assignee".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.assignee = decodeUser(parser);
+            } else if ("creator".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.creator = decodeUser(parser);
+            } else if ("reporter".equals(name) && token == JsonToken.START_OBJECT) {
+                fields.reporter = decodeUser(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private JiraIssue.ChangeLog decodeChangeLog(JsonParser parser, long createdAfter)
+        throws IOException {
+        int startAt = 0;
+        int maxResults = 0;
+        int total = 0;
+        int numHistoriesReturned = 0;
+        List<JiraIssue.History> histories = new ArrayList<JiraIssue.History>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("startAt".equals(name)) {
+                startAt = parser.getValueAsInt();
+            } else if ("maxResults".equals(name)) {
+                maxResults = parser.getValueAsInt();
+            } else if ("total".equals(name)) {
+                total = parser.getValueAsInt();
+            } else if ("histories".equals(name) && token == JsonToken.START_ARRAY) {
+                numHistoriesReturned += readHistories(parser, createdAfter, histories);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new JiraIssue.ChangeLog(startAt, maxResults, total, numHistoriesReturned,
+            toArray(histories));
+    }
+
+    /**
+     * @return The history, or null if it was created at or before createdAfter, in which case
+     * what follows its created field is skipped unread
+     */
+    private JiraIssue.History decodeHistory(JsonParser parser, long createdAfter)
+        throws IOException {
+        String id = null;
+        Date created = null;
+        JiraUser author = null;
+        String emailDescription = null;
+        List<JiraIssue.Item> items = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("id".equals(name)) {
+                id = text(parser);
+            } else if ("created".equals(name)) {
+                long createdMillis = JiraDateParser.parse(text(parser));
+                if (createdMillis <= createdAfter) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                    return null;
+                }
+                created = new Date(createdMillis);
+            } else if ("author".equals(name) && token == JsonToken.START_OBJECT) {
+                author = decodeUser(parser);
+            } else if ("historyMetadata".equals(name) && token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String metadataField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("emailDescription".equals(metadataField)) {
+                        emailDescription = text(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("items".equals(name) && token == JsonToken.START_ARRAY) {
+                items = new ArrayList<JiraIssue.Item>();
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT) {
+                        items.add(decodeItem(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        // automated changes have no author, only a description of who made them
+        if (author == null && emailDescription != null) {
+            author = new JiraUser(null, emailDescription, null);
+        }
+
+        if (created == null) {
+            throw new IllegalArgumentException("history " + id + " has no created date");
+        }
+        return new JiraIssue.History(id, created, author,
+            items == null || items.isEmpty()
+                ? NO_ITEMS : items.toArray(new JiraIssue.Item[items.size()]));
+    }
+
+    private JiraIssue.Item decodeItem(JsonParser parser) throws IOException {
+        String field = null;
+        String fieldType = null;
+        String from = null;
+        String fromString = null;
+        String to = null;
+        String toString = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("field".equals(name)) {
+                field = text(parser);
+            } else if ("fieldtype".equals(name)) {
+                fieldType = text(parser);
+            } else if ("from".equals(name)) {
+                from = text(parser);
+            } else if ("fromString".equals(name)) {
+                fromString = text(parser);
+            } else if ("to".equals(name)) {
+                to = text(parser);
+            } else if ("toString".equals(name)) {
+                toString = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new JiraIssue.Item(field, fieldType, from, fromString, to, toString);
+    }
+
+    private JiraIssue.Priority decodePriority(JsonParser parser) throws IOException {
+        String name = null;
+        String id = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("name".equals(fieldName)) {
+                name = text(parser);
+            } else if ("id".equals(fieldName)) {
+                id = text(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new JiraIssue.Priority(name, id);
+    }
+
+    private JiraUser decodeUser(JsonParser parser) throws IOException {
+        String self = null;
+        String displayName = null;
+        String emailAddress = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("self".equals(name)) {
+                self = nullableText(parser);
+            } else if ("displayName".equals(name)) {
+                displayName = nullableText(parser);
+            } else if ("emailAddress".equals(name)) {
+                emailAddress = nullableText(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return userPool.intern(self, displayName, emailAddress);
+    }
+
+    /**
+     * Text of the current scalar value, "null" for a JSON null like org.json gives, or null for
+     * an object or array (which is skipped)
+     */
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static String nullableText(JsonParser parser) throws IOException {
+        return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : text(parser);
+    }
+
+    private static Date date(JsonParser parser) throws IOException {
+        String text = nullableText(parser);
+        return text == null ? null : new Date(JiraDateParser.parse(text));
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        if (parser.getCurrentToken() != expected) {
+            throw new IOException("expected " + expected + " but found "
+                + parser.getCurrentToken() + " at " + parser.getCurrentLocation());
+        }
+    }
+
+    private static boolean isUpdatedAfter(IssueFields fields, Cutoff cutoff) {
+        return fields.updated != null
+            && fields.updated.getTime() > getUpdatedSince(fields, cutoff);
+    }
+
+    private static long getUpdatedSince(IssueFields fields, Cutoff cutoff) {
+        Date updatedSince = cutoff.getUpdatedSince(fields.projectKey);
+        return updatedSince == null ? Long.MIN_VALUE : updatedSince.getTime();
+    }
+
+    /**
+     * Time after which the changes of a project's issues are wanted
+     */
+    public interface Cutoff {
+
+        /**
+         * @param projectKey Key of the project, or null if the issue's project is unknown
+         * @return The time, or null to keep every change
+         */
+        Date getUpdatedSince(String projectKey);
+    }
+
+    /**
+     * The fields of an issue, collected while reading the "fields" object
+     */
+    private static class IssueFields {
+        private Date created;
+        private Date updated;
+        private String summary;
+        private String projectKey;
+        private String projectName;
+        private String watchesLink;
+        private JiraIssue.Priority priority;
+        private JiraIssue.Priority status;
+        private JiraUser assignee;
+        private JiraUser creator;
+        private JiraUser reporter;
+    }
+}
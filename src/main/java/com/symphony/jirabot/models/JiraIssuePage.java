@@ -0,0 +1,87 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of the issues matching a JIRA search
+ */
+public class JiraIssuePage {
+
+    private final List<JiraIssue> issues;
+    private final int startAt;
+    private final int issuesRead;
+    private final int total;
+
+    /**
+     * @param issuesRead Number of issues JIRA returned in the page, which is more than the issues
+     * kept when some were skipped while decoding
+     */
+    public JiraIssuePage(List<JiraIssue> issues, int startAt, int issuesRead, int total) {
+        this.issues = Collections.unmodifiableList(issues);
+        this.startAt = startAt;
+        this.issuesRead = issuesRead;
+        this.total = total;
+    }
+
+    public List<JiraIssue> getIssues() {
+        return issues;
+    }
+
+    /**
+     * Index of the first issue of this page among all the issues matching the search
+     */
+    public int getStartAt() {
+        return startAt;
+    }
+
+    /**
+     * Number of issues JIRA returned in this page, whether or not they were kept
+     */
+    public int getIssuesRead() {
+        return issuesRead;
+    }
+
+    /**
+     * Number of issues matching the search, over all pages
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isLastPage() {
+        return issuesRead == 0 || startAt + issuesRead >= total;
+    }
+
+    /**
+     * startAt of the page after this one
+     */
+    public int getNextStartAt() {
+        return startAt + issuesRead;
+    }
+}
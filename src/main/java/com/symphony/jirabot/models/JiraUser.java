@@ -24,11 +24,15 @@
 
 package com.symphony.jirabot.models;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.json.JSONObject;
 
 /**
  * Created by ryan.dsouza on 5/27/16.
+ *
+ * Immutable, as users of issues and histories are shared through JiraUserPool.
  */
 @JsonIgnoreProperties(
         ignoreUnknown = true
@@ -36,9 +40,9 @@ import org.json.JSONObject;
 
 public class JiraUser {
 
-    private String self;
-    private String emailAddress;
-    private String displayName;
+    private final String self;
+    private final String emailAddress;
+    private final String displayName;
 
     public JiraUser(JSONObject object) {
         this.self = object.getString("self");
@@ -46,19 +50,17 @@ public class JiraUser {
         this.emailAddress = object.getString("emailAddress");
     }
 
-    public JiraUser() {
-
-    }
-    public void setSelf(String self) {
+    /**
+     * Replaces the former no-arg constructor and setters, which were removed to keep users
+     * immutable
+     */
+    @JsonCreator
+    public JiraUser(@JsonProperty("self") String self,
+                    @JsonProperty("displayName") String displayName,
+                    @JsonProperty("emailAddress") String emailAddress) {
         this.self = self;
-    }
-
-    public void setEmailAddress(String emailAddress) {
-        this.emailAddress = emailAddress;
-    }
-
-    public void setDisplayName(String displayName) {
         this.displayName = displayName;
+        this.emailAddress = emailAddress;
     }
 
     public String getSelf() {
@@ -0,0 +1,158 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.models;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one JiraUser per JIRA user, keyed by the user's self link, and one String per distinct
+ * display name or email address, between all the issues and histories decoded.
+ *
+ * Entries are only weakly referenced, so users and strings no issue refers to anymore are
+ * collected, and each table stops taking new entries once it holds its maximum. Users taken from
+ * the pool are shared and must not be modified.
+ */
+public final class JiraUserPool {
+
+    private static final int MAX_USERS = 10000;
+    private static final int MAX_STRINGS = 20000;
+
+    /**
+     * Pool used by the JiraIssue constructors and by default by JiraIssueDecoder
+     */
+    public static final JiraUserPool SHARED = new JiraUserPool(MAX_USERS, MAX_STRINGS);
+
+    private final int maxUsers;
+    private final int maxStrings;
+
+    /**
+     * Keyed by the self string of the user each entry refers to, so an entry goes away with its
+     * user
+     */
+    private final Map<String, WeakReference<JiraUser>> users =
+        new WeakHashMap<String, WeakReference<JiraUser>>();
+    private final Map<String, WeakReference<String>> strings =
+        new WeakHashMap<String, WeakReference<String>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public JiraUserPool(int maxUsers, int maxStrings) {
+        this.maxUsers = maxUsers;
+        this.maxStrings = maxStrings;
+    }
+
+    /**
+     * Returns the pooled user with these values, pooling a new one if there is none. A user
+     * whose display name or email address changed replaces the pooled one.
+     */
+    public synchronized JiraUser intern(String self, String displayName, String emailAddress) {
+        if (self == null) {
+            misses.incrementAndGet();
+            return new JiraUser(null, intern(displayName), intern(emailAddress));
+        }
+
+        WeakReference<JiraUser> reference = users.get(self);
+        JiraUser pooled = reference == null ? null : reference.get();
+        if (pooled != null && equal(pooled.getDisplayName(), displayName)
+            && equal(pooled.getEmailAddress(), emailAddress)) {
+            hits.incrementAndGet();
+            return pooled;
+        }
+
+        misses.incrementAndGet();
+        JiraUser user = new JiraUser(intern(self), intern(displayName), intern(emailAddress));
+        if (pooled != null || users.size() < maxUsers) {
+            // the user's own self string is the key, which keeps the entry until the user goes
+            users.remove(self);
+            users.put(user.getSelf(), new WeakReference<JiraUser>(user));
+        }
+        return user;
+    }
+
+    /**
+     * Returns the pooled equivalent of a user built elsewhere, pooling a copy of it if there is
+     * none. The user given is never pooled itself, as its strings are not interned.
+     */
+    public JiraUser intern(JiraUser user) {
+        if (user == null) {
+            return null;
+        }
+        return intern(user.getSelf(), user.getDisplayName(), user.getEmailAddress());
+    }
+
+    /**
+     * Returns the pooled String equal to text, pooling text if there is none
+     */
+    public synchronized String intern(String text) {
+        if (text == null) {
+            return null;
+        }
+        WeakReference<String> reference = strings.get(text);
+        String pooled = reference == null ? null : reference.get();
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() < maxStrings) {
+            strings.put(text, new WeakReference<String>(text));
+        }
+        return text;
+    }
+
+    /**
+     * Number of users that were already pooled
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of users that had to be built
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of users currently pooled
+     */
+    public synchronized int size() {
+        return users.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return users.size() + " user(s) and " + strings.size() + " string(s) pooled, "
+            + hits.get() + " hit(s), " + misses.get() + " miss(es)";
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+}
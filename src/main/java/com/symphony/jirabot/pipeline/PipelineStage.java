@@ -0,0 +1,150 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * One step of a processing pipeline, run by a fixed number of worker threads.
+ *
+ * Every worker owns a bounded queue and items are routed to a worker by a partition key, so
+ * items sharing a key are processed one after the other in submission order. When a worker's
+ * queue is full, submit() blocks, which pushes back on whoever feeds the stage.
+ */
+public class PipelineStage<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PipelineStage.class);
+
+  private final String name;
+  private final List<BlockingQueue<T>> queues = new ArrayList<BlockingQueue<T>>();
+  private final List<Thread> workers = new ArrayList<Thread>();
+
+  private final AtomicLong processedCount = new AtomicLong();
+  private long lastSampledCount;
+  private long lastSampleNanos = System.nanoTime();
+
+  /**
+   * @param name Name of the stage, used for its threads and in logs
+   * @param numThreads Number of worker threads
+   * @param queueCapacity Number of items that may wait in the stage, shared by its workers
+   * @param processor Processes one item; exceptions and errors are logged and the item is
+   * dropped
+   */
+  public PipelineStage(final String name, int numThreads, int queueCapacity,
+      final Consumer<T> processor) {
+    this.name = name;
+
+    numThreads = Math.max(1, numThreads);
+    int queueCapacityPerWorker = Math.max(1, queueCapacity / numThreads);
+
+    for (int i = 0; i < numThreads; i++) {
+      final BlockingQueue<T> queue = new ArrayBlockingQueue<T>(queueCapacityPerWorker);
+      queues.add(queue);
+
+      Thread worker = new Thread(new Runnable() {
+        public void run() {
+          while (!Thread.currentThread().isInterrupted()) {
+            T item;
+            try {
+              item = queue.take();
+            } catch (InterruptedException e) {
+              return;
+            }
+            try {
+              processor.accept(item);
+            } catch (Throwable e) {
+              // an Error must not end the worker, or the items queued behind it never leave
+              LOG.error("pipeline stage " + name + " failed to process " + item, e);
+            }
+            processedCount.incrementAndGet();
+          }
+        }
+      }, "pipeline-" + name + "-" + i);
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * Queues an item for the worker owning its partition key, waiting while that worker's queue is
+   * full
+   */
+  public void submit(T item, Object partitionKey) throws InterruptedException {
+    int partition = (partitionKey.hashCode() & Integer.MAX_VALUE) % queues.size();
+    queues.get(partition).put(item);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Number of items waiting in the stage
+   */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (BlockingQueue<T> queue : queues) {
+      depth += queue.size();
+    }
+    return depth;
+  }
+
+  /**
+   * Number of items processed since the stage started
+   */
+  public long getProcessedCount() {
+    return processedCount.get();
+  }
+
+  /**
+   * Items processed per second since the previous call
+   */
+  public synchronized double sampleThroughputPerSecond() {
+    long now = System.nanoTime();
+    long count = processedCount.get();
+    double elapsedSeconds = (now - lastSampleNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+    double throughput = elapsedSeconds <= 0 ? 0 : (count - lastSampledCount) / elapsedSeconds;
+    lastSampledCount = count;
+    lastSampleNanos = now;
+    return throughput;
+  }
+
+  public void shutdown() {
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+  }
+}
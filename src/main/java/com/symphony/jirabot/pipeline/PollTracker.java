@@ -0,0 +1,100 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.pipeline;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the items a single poll pushed into the pipeline, so the poll can wait until every one
+ * of them has left it and find out whether any failed.
+ */
+public class PollTracker {
+
+  // the source itself counts as one pending item until sourceFinished() is called
+  private final AtomicInteger pendingItems = new AtomicInteger(1);
+  private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+  private final CompletableFuture<Void> completion = new CompletableFuture<Void>();
+
+  /**
+   * Called before an item is submitted to the pipeline
+   */
+  public void itemStarted() {
+    pendingItems.incrementAndGet();
+  }
+
+  /**
+   * Called once an item has left the pipeline, whether it was delivered or dropped
+   */
+  public void itemFinished() {
+    if (pendingItems.decrementAndGet() == 0) {
+      Throwable firstFailure = failure.get();
+      if (firstFailure == null) {
+        completion.complete(null);
+      } else {
+        completion.completeExceptionally(firstFailure);
+      }
+    }
+  }
+
+  /**
+   * Called instead of itemFinished() when an item could not be processed
+   */
+  public void itemFailed(Throwable cause) {
+    failure.compareAndSet(null, cause);
+    itemFinished();
+  }
+
+  /**
+   * Called once the source will not start any more items
+   */
+  public void sourceFinished() {
+    itemFinished();
+  }
+
+  /**
+   * Waits until every item has left the pipeline, or until the timeout elapsed
+   *
+   * @throws RuntimeException if any item failed, or if items are still pending after the timeout
+   */
+  public void await(long timeout, TimeUnit unit) throws InterruptedException {
+    try {
+      completion.get(timeout, unit);
+    } catch (TimeoutException e) {
+      throw new RuntimeException(pendingItems.get() + " pipeline item(s) still pending after "
+          + unit.toMillis(timeout) + "ms", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException("pipeline item failed", e.getCause());
+    }
+  }
+}
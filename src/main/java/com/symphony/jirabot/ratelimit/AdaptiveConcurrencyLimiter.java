@@ -0,0 +1,192 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in flight, adapting the limit to the latency observed (AIMD).
+ *
+ * While the smoothed round trip time stays within a tolerance of the lowest one seen recently and
+ * the limit is being used in full, the limit grows by about one per round trip. When latency rises
+ * past the tolerance, or a request fails in a way that points at an overloaded server, the limit
+ * is cut by a tenth, at most once per round trip.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final double RTT_SMOOTHING = 0.1;
+  private static final double BACKOFF_RATIO = 0.9;
+
+  /**
+   * Number of samples after which the lowest round trip time starts over, so it follows lasting
+   * changes in latency
+   */
+  private static final int MIN_RTT_WINDOW = 500;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final double latencyTolerance;
+
+  private double limit;
+  private int inFlight;
+
+  private double smoothedRttNanos;
+  private long minRttNanos = Long.MAX_VALUE;
+  private long windowMinRttNanos = Long.MAX_VALUE;
+  private int windowSamples;
+  private long lastDecreaseNanos;
+
+  private final AtomicLong decreases = new AtomicLong();
+
+  /**
+   * @param name Name of what is limited, used in logs
+   * @param minLimit Lowest limit
+   * @param initialLimit Limit to start from
+   * @param maxLimit Highest limit
+   * @param latencyTolerance How many times the lowest round trip time the smoothed one may reach
+   * before the limit is cut
+   */
+  public AdaptiveConcurrencyLimiter(String name, int minLimit, int initialLimit, int maxLimit,
+      double latencyTolerance) {
+    this.name = name;
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    this.latencyTolerance = Math.max(1, latencyTolerance);
+  }
+
+  /**
+   * Waits until a request may be made. Every acquire() must be followed by a release() or a
+   * cancel().
+   */
+  public synchronized void acquire() {
+    try {
+      while (inFlight >= (int) limit) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while waiting to make a " + name + " request", e);
+    }
+    inFlight++;
+  }
+
+  /**
+   * Gives back the place taken by acquire() for a request that was not made after all
+   */
+  public synchronized void cancel() {
+    inFlight--;
+    notifyAll();
+  }
+
+  /**
+   * Records the outcome of a request
+   *
+   * @param rttNanos How long the request took
+   * @param overloaded Whether the request failed in a way that points at an overloaded server
+   */
+  public synchronized void release(long rttNanos, boolean overloaded) {
+    boolean usedFullLimit = inFlight >= (int) limit;
+    inFlight--;
+
+    if (overloaded) {
+      decrease();
+    } else {
+      recordRtt(rttNanos);
+      if (smoothedRttNanos > minRttNanos * latencyTolerance) {
+        decrease();
+      } else if (usedFullLimit) {
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+      }
+    }
+    notifyAll();
+  }
+
+  private void recordRtt(long rttNanos) {
+    smoothedRttNanos = smoothedRttNanos == 0
+        ? rttNanos : smoothedRttNanos + RTT_SMOOTHING * (rttNanos - smoothedRttNanos);
+
+    windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+    minRttNanos = Math.min(minRttNanos, rttNanos);
+    if (++windowSamples >= MIN_RTT_WINDOW) {
+      minRttNanos = windowMinRttNanos;
+      windowMinRttNanos = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+  }
+
+  private void decrease() {
+    long now = System.nanoTime();
+    // nanoTime() may be negative, so lastDecreaseNanos means nothing before the first cut
+    if (decreases.get() > 0 && now - lastDecreaseNanos < smoothedRttNanos) {
+      return; // already cut for this round trip
+    }
+    lastDecreaseNanos = now;
+    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    decreases.incrementAndGet();
+  }
+
+  /**
+   * Number of requests currently allowed in flight
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Lowest round trip time seen recently, in milliseconds
+   */
+  public synchronized long getMinRttMillis() {
+    return minRttNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(minRttNanos);
+  }
+
+  /**
+   * Exponentially smoothed round trip time, in milliseconds
+   */
+  public synchronized long getSmoothedRttMillis() {
+    return TimeUnit.NANOSECONDS.toMillis((long) smoothedRttNanos);
+  }
+
+  /**
+   * Number of times the limit was cut so far
+   */
+  public long getDecreases() {
+    return decreases.get();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + ": limit " + (int) limit + ", " + inFlight + " in flight, rtt "
+        + getSmoothedRttMillis() + "ms (min " + getMinRttMillis() + "ms), " + decreases.get()
+        + " decrease(s)";
+  }
+}
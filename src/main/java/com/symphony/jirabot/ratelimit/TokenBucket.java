@@ -0,0 +1,135 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets requests through at a steady rate, allowing short bursts.
+ *
+ * The bucket refills at the configured rate up to its burst size, and each request takes one
+ * token. A request finding the bucket empty reserves the next token anyway and waits until it is
+ * due, so waiting requests are let through in order, evenly spaced.
+ */
+public class TokenBucket {
+
+  private final String name;
+  private final double permitsPerSecond;
+  private final double burst;
+
+  private double tokens;
+  private long lastRefillNanos = System.nanoTime();
+
+  private final AtomicLong acquired = new AtomicLong();
+  private final AtomicLong delayed = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  /**
+   * @param name Name of what is rate limited, used in logs
+   * @param permitsPerSecond Steady rate of requests
+   * @param burst Number of requests that may go through at once after a quiet period
+   */
+  public TokenBucket(String name, double permitsPerSecond, int burst) {
+    this.name = name;
+    this.permitsPerSecond = Math.max(0.001, permitsPerSecond);
+    this.burst = Math.max(1, burst);
+    this.tokens = this.burst;
+  }
+
+  /**
+   * Takes a token, waiting until one is available
+   *
+   * @return Time waited, in milliseconds
+   */
+  public long acquire() {
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerSecond / 1e9);
+      lastRefillNanos = now;
+
+      tokens -= 1;
+      waitNanos = tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * 1e9);
+    }
+
+    acquired.incrementAndGet();
+    if (waitNanos > 0) {
+      delayed.incrementAndGet();
+      totalWaitNanos.addAndGet(waitNanos);
+      long max = maxWaitNanos.get();
+      while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+        max = maxWaitNanos.get();
+      }
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("interrupted while waiting for a " + name + " permit", e);
+      }
+    }
+    return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Number of tokens taken so far
+   */
+  public long getAcquired() {
+    return acquired.get();
+  }
+
+  /**
+   * Number of token takers that had to wait
+   */
+  public long getDelayed() {
+    return delayed.get();
+  }
+
+  /**
+   * Time spent waiting for tokens, over all takers, in milliseconds
+   */
+  public long getTotalWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+  }
+
+  /**
+   * Longest wait for a token so far, in milliseconds
+   */
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  @Override
+  public String toString() {
+    return name + ": " + acquired.get() + " acquired, " + delayed.get() + " delayed, "
+        + getTotalWaitMillis() + "ms waited, " + getMaxWaitMillis() + "ms longest wait";
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.retry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops requests to a host that keeps failing, so an outage is not met with a stream of requests
+ * that cannot succeed.
+ *
+ * After enough consecutive failures the circuit opens and requests fail fast. Once it has been
+ * open for a while a single trial request is let through (half open); its success closes the
+ * circuit again, its failure opens it for another while.
+ */
+public class CircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final long openMillis;
+
+  private State state = State.CLOSED;
+  private int consecutiveFailures;
+  private long openUntilMillis;
+  private boolean trialInFlight;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  /**
+   * @param name Name of what is protected, e.g. its host, used in logs
+   * @param failureThreshold Number of consecutive failures that open the circuit
+   * @param openMillis How long the circuit stays open before a trial request
+   */
+  public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+    this.name = name;
+    this.failureThreshold = Math.max(1, failureThreshold);
+    this.openMillis = openMillis;
+  }
+
+  /**
+   * Called before each request. Every request allowed through must be followed by onSuccess() or
+   * onFailure().
+   *
+   * @throws CircuitOpenException if the request must not be made
+   */
+  public synchronized void acquirePermission() {
+    if (state == State.OPEN && System.currentTimeMillis() >= openUntilMillis) {
+      LOG.info("circuit for " + name + " half open, letting a trial request through");
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN && !trialInFlight) {
+      trialInFlight = true;
+      return;
+    }
+    if (state != State.CLOSED) {
+      rejected.incrementAndGet();
+      throw new CircuitOpenException("circuit for " + name + " is " + state);
+    }
+  }
+
+  /**
+   * Called when the host answered, even if with an error that is not its fault
+   */
+  public synchronized void onSuccess() {
+    if (state != State.CLOSED) {
+      LOG.info("circuit for " + name + " closed");
+    }
+    state = State.CLOSED;
+    consecutiveFailures = 0;
+    trialInFlight = false;
+  }
+
+  /**
+   * Called when the host did not answer, or answered that it cannot serve the request now
+   */
+  public synchronized void onFailure() {
+    consecutiveFailures++;
+    trialInFlight = false;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      open(openMillis);
+    }
+  }
+
+  /**
+   * Opens the circuit for at least the given time, e.g. as long as the host asked us to back off
+   */
+  public synchronized void openFor(long millis) {
+    trialInFlight = false;
+    open(millis);
+  }
+
+  private void open(long millis) {
+    long until = System.currentTimeMillis() + millis;
+    if (state != State.OPEN || until > openUntilMillis) {
+      openUntilMillis = until;
+    }
+    if (state != State.OPEN) {
+      LOG.warn("circuit for " + name + " open for " + millis + "ms after " + consecutiveFailures
+          + " consecutive failure(s)");
+    }
+    state = State.OPEN;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  /**
+   * Number of requests failed fast so far
+   */
+  public long getRejected() {
+    return rejected.get();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return name + ": " + state + ", " + consecutiveFailures + " consecutive failure(s), "
+        + rejected.get() + " rejected";
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.retry;
+
+import org.apache.http.client.utils.DateUtils;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * How often, and how far apart, a failed request is tried again.
+ *
+ * The delay doubles with every retry up to a maximum, and is jittered between half and all of
+ * that so clients failing together do not retry together.
+ */
+public class RetryPolicy {
+
+  private final int maxAttempts;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong givenUp = new AtomicLong();
+
+  /**
+   * @param maxAttempts Number of times a request is tried, including the first
+   * @param baseDelayMillis Delay before the first retry, before jitter
+   * @param maxDelayMillis Longest delay before any retry
+   */
+  public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.baseDelayMillis = Math.max(1, baseDelayMillis);
+    this.maxDelayMillis = Math.max(this.baseDelayMillis, maxDelayMillis);
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public long getMaxDelayMillis() {
+    return maxDelayMillis;
+  }
+
+  /**
+   * Delay before trying again after the given failed attempt (1 for the first)
+   */
+  public long getBackoffMillis(int failedAttempt) {
+    int doublings = Math.min(failedAttempt - 1, 30);
+    long delayMillis = Math.min(maxDelayMillis, baseDelayMillis << doublings);
+    return delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+  }
+
+  /**
+   * Whether a request answered with this status may succeed if made again. Other client errors,
+   * including 401, fail the same way however often they are retried.
+   */
+  public static boolean isRetryable(int status) {
+    return isHostFailure(status);
+  }
+
+  /**
+   * Whether this status means the host cannot serve requests right now, as opposed to rejecting
+   * this one
+   */
+  public static boolean isHostFailure(int status) {
+    return status == 408 || status == 429 || status == 500 || status == 502 || status == 503
+        || status == 504;
+  }
+
+  /**
+   * Returns how long a Retry-After header value, either in seconds or an HTTP date, asks to wait
+   *
+   * @return The delay, or 0 if the value is invalid or already past
+   */
+  public static long parseRetryAfterMillis(String value, long nowMillis) {
+    String trimmed = value.trim();
+    try {
+      return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(trimmed)));
+    } catch (NumberFormatException e) {
+      Date retryAt = DateUtils.parseDate(trimmed);
+      return retryAt == null ? 0 : Math.max(0, retryAt.getTime() - nowMillis);
+    }
+  }
+
+  /**
+   * Waits before a retry
+   */
+  public void sleepBeforeRetry(long delayMillis) {
+    retries.incrementAndGet();
+    try {
+      Thread.sleep(delayMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("interrupted while waiting to retry", e);
+    }
+  }
+
+  /**
+   * Records a request that failed for good
+   */
+  public void gaveUp() {
+    givenUp.incrementAndGet();
+  }
+
+  /**
+   * Number of retries made so far
+   */
+  public long getRetries() {
+    return retries.get();
+  }
+
+  /**
+   * Number of requests that failed for good so far
+   */
+  public long getGivenUp() {
+    return givenUp.get();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.stores;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which JIRA events (an issue id plus a history id) have already been delivered, so
+ * overlapping poll windows do not post the same update twice.
+ *
+ * Recently delivered events are kept exactly in a bounded in-memory set. Older ones are
+ * remembered by two memory-mapped bloom filters used as generations: once the current one holds
+ * its capacity the older one is cleared and takes over, so the files never grow and the false
+ * positive rate stays around 0.1% of lookups for events older than the in-memory set.
+ */
+public class DeliveredEventIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DeliveredEventIndex.class);
+
+  /**
+   * Bits per event and number of hashes for a false positive rate of about 0.1%
+   */
+  private static final int BITS_PER_EVENT = 15;
+  private static final int NUM_HASHES = 10;
+
+  private static final int MAX_EVENTS_IN_MEMORY = 10000;
+
+  private final long capacityPerGeneration;
+  private final MappedBloomFilter[] generations;
+  private int current;
+
+  private final Set<String> recentEvents;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param path Prefix of the two bloom filter files
+   * @param capacity Number of events remembered by each generation
+   */
+  public DeliveredEventIndex(String path, long capacity) {
+    this.capacityPerGeneration = capacity;
+
+    long numBits = Math.max(64, capacity * BITS_PER_EVENT);
+    generations = new MappedBloomFilter[] {
+        new MappedBloomFilter(new File(path + ".0"), numBits, NUM_HASHES),
+        new MappedBloomFilter(new File(path + ".1"), numBits, NUM_HASHES)
+    };
+    // the generation still filling up is the current one
+    current = generations[0].getInsertions() <= generations[1].getInsertions() ? 0 : 1;
+
+    final int maxEventsInMemory = (int) Math.min(capacity, MAX_EVENTS_IN_MEMORY);
+    recentEvents = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > maxEventsInMemory;
+      }
+    });
+
+    LOG.info("delivered event index at " + path + " remembers " + generations[current]
+        .getInsertions() + " + " + generations[1 - current].getInsertions() + " events");
+  }
+
+  /**
+   * True if the event was (most likely) delivered before
+   */
+  public synchronized boolean isDelivered(String issueId, String eventId) {
+    String key = toKey(issueId, eventId);
+    if (recentEvents.contains(key) || generations[current].mightContain(key)
+        || generations[1 - current].mightContain(key)) {
+      hits.incrementAndGet();
+      return true;
+    }
+    misses.incrementAndGet();
+    return false;
+  }
+
+  public synchronized void markDelivered(String issueId, String eventId) {
+    String key = toKey(issueId, eventId);
+    if (!recentEvents.add(key)) {
+      return;
+    }
+
+    if (generations[current].getInsertions() >= capacityPerGeneration) {
+      current = 1 - current;
+      generations[current].clear();
+      LOG.info("delivered event index generation full, reusing " + generations[current].getFile());
+    }
+    generations[current].put(key);
+  }
+
+  /**
+   * Writes the bloom filters back to disk
+   */
+  public synchronized void flush() {
+    generations[0].flush();
+    generations[1].flush();
+  }
+
+  /**
+   * Number of lookups that found an already delivered event
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Number of lookups that found a new event
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  private static String toKey(String issueId, String eventId) {
+    return issueId + '/' + eventId;
+  }
+}
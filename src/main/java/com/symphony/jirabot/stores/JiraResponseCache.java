@@ -0,0 +1,389 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.stores;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps JIRA responses, with their ETag and Last-Modified validators, so they can be reused while
+ * fresh and revalidated with a conditional request once stale.
+ *
+ * Responses are kept in memory up to a total size, evicting the least recently used. With a
+ * directory configured, responses put with onDisk are also written to their own file there, so
+ * they survive both eviction and restarts; the files are bounded by their own total size, again
+ * evicting the least recently used, and are readable by the bot's user only where the file system
+ * has POSIX permissions. The files are not encrypted, so responses holding personal data, such
+ * as user lookups, should be kept in memory only.
+ */
+public class JiraResponseCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraResponseCache.class);
+
+  private static final int FILE_FORMAT_VERSION = 1;
+
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private final long maxBytesInMemory;
+  private final File directory;
+  private final long maxBytesOnDisk;
+  private final boolean posixPermissions;
+
+  private final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private long bytesInMemory;
+
+  /**
+   * Size of the files in the directory by file name, least recently used first
+   */
+  private final LinkedHashMap<String, Long> files =
+      new LinkedHashMap<String, Long>(16, 0.75f, true);
+  private long bytesOnDisk;
+
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong diskEvictions = new AtomicLong();
+
+  /**
+   * @param maxBytesInMemory Total size of the responses kept in memory
+   * @param directory Directory to also keep responses in, or null to keep them in memory only
+   * @param maxBytesOnDisk Total size of the files kept in the directory
+   */
+  public JiraResponseCache(long maxBytesInMemory, File directory, long maxBytesOnDisk) {
+    this.maxBytesInMemory = maxBytesInMemory;
+    this.directory = directory;
+    this.maxBytesOnDisk = maxBytesOnDisk;
+    this.posixPermissions = directory != null
+        && directory.toPath().getFileSystem().supportedFileAttributeViews().contains("posix");
+    if (directory != null) {
+      openDirectory();
+    }
+  }
+
+  private void openDirectory() {
+    try {
+      if (!directory.isDirectory()) {
+        Files.createDirectories(directory.toPath(), permissions("rwx------"));
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("failed to create JIRA response cache directory " + directory, e);
+    }
+
+    File[] existing = directory.listFiles();
+    if (existing == null) {
+      throw new RuntimeException("failed to list JIRA response cache directory " + directory);
+    }
+    // oldest first, as reads touch the files they use
+    Arrays.sort(existing, new Comparator<File>() {
+      public int compare(File a, File b) {
+        return Long.compare(a.lastModified(), b.lastModified());
+      }
+    });
+    synchronized (files) {
+      for (File file : existing) {
+        if (file.getName().contains(TMP_SUFFIX)) {
+          // left over by a write that did not complete
+          file.delete();
+        } else if (file.isFile()) {
+          files.put(file.getName(), file.length());
+          bytesOnDisk += file.length();
+        }
+      }
+      evictFromDisk();
+    }
+  }
+
+  /**
+   * Returns the response kept for a URL, fresh or not, or null if there is none
+   */
+  public Entry get(String url) {
+    synchronized (entries) {
+      Entry entry = entries.get(url);
+      if (entry != null) {
+        return entry;
+      }
+    }
+
+    Entry entry = readFromDisk(url);
+    if (entry != null) {
+      putInMemory(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Keeps the response for a URL
+   *
+   * @param onDisk False to keep the response in memory only, even with a directory configured
+   */
+  public Entry put(String url, String body, String etag, String lastModified, boolean onDisk) {
+    Entry entry = new Entry(url, body, etag, lastModified, System.currentTimeMillis(), onDisk);
+    putInMemory(entry);
+    if (onDisk) {
+      writeToDisk(entry);
+    }
+    return entry;
+  }
+
+  /**
+   * Marks a kept response as fresh again, after JIRA confirmed it is unchanged
+   */
+  public Entry revalidated(Entry entry) {
+    return put(entry.url, entry.body, entry.etag, entry.lastModified, entry.onDisk);
+  }
+
+  /**
+   * Number of responses evicted from memory so far
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * Number of response files deleted from the directory so far to stay within its size
+   */
+  public long getDiskEvictions() {
+    return diskEvictions.get();
+  }
+
+  public long getBytesInMemory() {
+    synchronized (entries) {
+      return bytesInMemory;
+    }
+  }
+
+  public long getBytesOnDisk() {
+    synchronized (files) {
+      return bytesOnDisk;
+    }
+  }
+
+  private void putInMemory(Entry entry) {
+    synchronized (entries) {
+      Entry previous = entries.put(entry.url, entry);
+      if (previous != null) {
+        bytesInMemory -= previous.size();
+      }
+      bytesInMemory += entry.size();
+
+      Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+      while (bytesInMemory > maxBytesInMemory && leastRecentlyUsed.hasNext()) {
+        Entry evicted = leastRecentlyUsed.next();
+        leastRecentlyUsed.remove();
+        bytesInMemory -= evicted.size();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  private Entry readFromDisk(String url) {
+    if (directory == null) {
+      return null;
+    }
+    File file = fileFor(url);
+    synchronized (files) {
+      if (files.get(file.getName()) == null) {
+        return null;
+      }
+    }
+
+    try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+      if (in.readInt() != FILE_FORMAT_VERSION || !url.equals(in.readUTF())) {
+        return null;
+      }
+      String etag = readNullableUTF(in);
+      String lastModified = readNullableUTF(in);
+      long storedAtMillis = in.readLong();
+      byte[] body = new byte[in.readInt()];
+      in.readFully(body);
+      // keeps the least recently used order across restarts
+      file.setLastModified(System.currentTimeMillis());
+      return new Entry(url, new String(body, StandardCharsets.UTF_8), etag, lastModified,
+          storedAtMillis, true);
+    } catch (IOException e) {
+      LOG.warn("ignoring unreadable JIRA response cache file " + file, e);
+      return null;
+    }
+  }
+
+  private void writeToDisk(Entry entry) {
+    if (directory == null) {
+      return;
+    }
+    File file = fileFor(entry.url);
+    File tmp = new File(file.getPath() + TMP_SUFFIX + Thread.currentThread().getId());
+
+    try {
+      tmp.delete();
+      Files.createFile(tmp.toPath(), permissions("rw-------"));
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp.toPath()))) {
+        out.writeInt(FILE_FORMAT_VERSION);
+        out.writeUTF(entry.url);
+        writeNullableUTF(out, entry.etag);
+        writeNullableUTF(out, entry.lastModified);
+        out.writeLong(entry.storedAtMillis);
+        byte[] body = entry.body.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(body.length);
+        out.write(body);
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // the response is still kept in memory
+      LOG.warn("failed to write JIRA response cache file " + file, e);
+      tmp.delete();
+      return;
+    }
+
+    synchronized (files) {
+      Long previous = files.put(file.getName(), file.length());
+      if (previous != null) {
+        bytesOnDisk -= previous;
+      }
+      bytesOnDisk += file.length();
+      evictFromDisk();
+    }
+  }
+
+  /**
+   * Deletes the least recently used files until the directory is within its size; called while
+   * holding the files lock
+   */
+  private void evictFromDisk() {
+    Iterator<Map.Entry<String, Long>> leastRecentlyUsed = files.entrySet().iterator();
+    while (bytesOnDisk > maxBytesOnDisk && leastRecentlyUsed.hasNext()) {
+      Map.Entry<String, Long> evicted = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      bytesOnDisk -= evicted.getValue();
+      new File(directory, evicted.getKey()).delete();
+      diskEvictions.incrementAndGet();
+    }
+  }
+
+  private FileAttribute<?>[] permissions(String permissions) {
+    if (!posixPermissions) {
+      return new FileAttribute<?>[0];
+    }
+    Set<PosixFilePermission> set = PosixFilePermissions.fromString(permissions);
+    return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(set)};
+  }
+
+  private File fileFor(String url) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder();
+      for (byte b : digest) {
+        name.append(String.format("%02x", b));
+      }
+      return new File(directory, name.toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("SHA-1 is not supported", e);
+    }
+  }
+
+  private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullableUTF(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /**
+   * A kept response
+   */
+  public static class Entry {
+    private final String url;
+    private final String body;
+    private final String etag;
+    private final String lastModified;
+    private final long storedAtMillis;
+    private final boolean onDisk;
+
+    private Entry(String url, String body, String etag, String lastModified,
+        long storedAtMillis, boolean onDisk) {
+      this.url = url;
+      this.body = body;
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.storedAtMillis = storedAtMillis;
+      this.onDisk = onDisk;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    /**
+     * ETag JIRA sent with the response, or null
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    /**
+     * Last-Modified JIRA sent with the response, or null
+     */
+    public String getLastModified() {
+      return lastModified;
+    }
+
+    /**
+     * Time since the response was received or last revalidated
+     */
+    public long getAgeMillis() {
+      return System.currentTimeMillis() - storedAtMillis;
+    }
+
+    private long size() {
+      return 2L * (url.length() + body.length());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.stores;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fixed-size bloom filter kept in a memory-mapped file, so its contents survive restarts
+ * without being read or written as a whole.
+ *
+ * The file starts with a small header (magic number, number of hashes, number of insertions)
+ * followed by the bit array. A file that does not match the requested shape is reset.
+ */
+public class MappedBloomFilter {
+
+  private static final int MAGIC = 0x4a424c4d;
+  private static final int HEADER_BYTES = 16;
+  private static final int INSERTIONS_OFFSET = 8;
+
+  private final File file;
+  private final MappedByteBuffer buffer;
+  private final long numBits;
+  private final int numHashes;
+
+  public MappedBloomFilter(File file, long numBits, int numHashes) {
+    this.file = file;
+    this.numBits = numBits;
+    this.numHashes = numHashes;
+
+    long size = HEADER_BYTES + (numBits + 7) / 8;
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      boolean matchesShape = randomAccessFile.length() == size;
+      randomAccessFile.setLength(size);
+      // the mapping stays valid after the channel is closed
+      this.buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      if (!matchesShape || buffer.getInt(0) != MAGIC || buffer.getInt(4) != numHashes) {
+        clear();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("failed to map bloom filter file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  public synchronized boolean mightContain(String key) {
+    long hash1 = hash(key, 0L);
+    long hash2 = hash(key, 0x9e3779b97f4a7c15L) | 1L;
+    for (int i = 0; i < numHashes; i++) {
+      if (!isSet(bitIndex(hash1 + i * hash2))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public synchronized void put(String key) {
+    long hash1 = hash(key, 0L);
+    long hash2 = hash(key, 0x9e3779b97f4a7c15L) | 1L;
+    for (int i = 0; i < numHashes; i++) {
+      set(bitIndex(hash1 + i * hash2));
+    }
+    buffer.putLong(INSERTIONS_OFFSET, buffer.getLong(INSERTIONS_OFFSET) + 1);
+  }
+
+  public synchronized void clear() {
+    for (int i = HEADER_BYTES; i < buffer.capacity(); i++) {
+      buffer.put(i, (byte) 0);
+    }
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, numHashes);
+    buffer.putLong(INSERTIONS_OFFSET, 0L);
+  }
+
+  /**
+   * Number of keys put since the filter was last cleared
+   */
+  public synchronized long getInsertions() {
+    return buffer.getLong(INSERTIONS_OFFSET);
+  }
+
+  /**
+   * Writes changed pages back to the file
+   */
+  public synchronized void flush() {
+    buffer.force();
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  private long bitIndex(long hash) {
+    return (hash & Long.MAX_VALUE) % numBits;
+  }
+
+  private boolean isSet(long bit) {
+    int index = HEADER_BYTES + (int) (bit >>> 3);
+    return (buffer.get(index) & (1 << (bit & 7))) != 0;
+  }
+
+  private void set(long bit) {
+    int index = HEADER_BYTES + (int) (bit >>> 3);
+    buffer.put(index, (byte) (buffer.get(index) | (1 << (bit & 7))));
+  }
+
+  /**
+   * 64 bit FNV-1a over the UTF-8 bytes of the key, followed by a murmur3 style finalizer
+   */
+  private static long hash(String key, long seed) {
+    long hash = 0xcbf29ce484222325L ^ seed;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.stores;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers, per JIRA project key, the latest issue update that has been fully processed.
+ *
+ * Every advance is appended to a small text file as a "projectKey TAB epochMillis" line, so a
+ * restart resumes from the last processed update. Later lines win when the file is read back.
+ * Once the file holds many more lines than projects it is compacted into one line per project.
+ */
+public class ProjectWatermarkStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProjectWatermarkStore.class);
+
+  private static final String SEPARATOR = "\t";
+
+  /**
+   * Minimum number of appended lines before the file is considered for compaction
+   */
+  private static final int MIN_LINES_BEFORE_COMPACTION = 256;
+
+  private final File file;
+  private final Map<String, Long> watermarks = new HashMap<String, Long>();
+
+  private int linesInFile;
+
+  public ProjectWatermarkStore(File file) {
+    this.file = file;
+    load();
+  }
+
+  /**
+   * Returns the watermark for a project, or null if the project has never been processed
+   */
+  public synchronized Date getWatermark(String projectKey) {
+    Long watermark = watermarks.get(projectKey);
+    return watermark == null ? null : new Date(watermark);
+  }
+
+  /**
+   * Moves the watermark of a project forward. Watermarks never move backwards, so an
+   * older date is ignored.
+   */
+  public synchronized void advance(String projectKey, Date watermark) {
+    Long current = watermarks.get(projectKey);
+    if (current != null && current >= watermark.getTime()) {
+      return;
+    }
+
+    watermarks.put(projectKey, watermark.getTime());
+    try {
+      append(projectKey, watermark.getTime());
+      if (linesInFile >= MIN_LINES_BEFORE_COMPACTION && linesInFile > 2 * watermarks.size()) {
+        compact();
+      }
+    } catch (IOException e) {
+      // the in-memory watermark is still valid, a restart just re-reads a little more from JIRA
+      LOG.error("failed to persist watermark for JIRA project " + projectKey + " to " + file, e);
+    }
+  }
+
+  private void load() {
+    if (!file.exists()) {
+      LOG.info("no watermark file at " + file.getAbsolutePath() + ", starting fresh");
+      return;
+    }
+
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        linesInFile++;
+        int separator = line.lastIndexOf(SEPARATOR);
+        if (separator <= 0) {
+          continue;
+        }
+        try {
+          long watermark = Long.parseLong(line.substring(separator + 1));
+          String projectKey = line.substring(0, separator);
+          Long current = watermarks.get(projectKey);
+          if (current == null || current < watermark) {
+            watermarks.put(projectKey, watermark);
+          }
+        } catch (NumberFormatException e) {
+          // most likely a line torn by a crash mid-write
+          LOG.warn("skipping malformed watermark line: " + line);
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("failed to read watermarks from " + file.getAbsolutePath(), e);
+    }
+    LOG.info("loaded watermarks for " + watermarks.size() + " JIRA project(s) from " + file);
+  }
+
+  private void append(String projectKey, long watermark) throws IOException {
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true),
+        StandardCharsets.UTF_8)) {
+      writer.write(projectKey + SEPARATOR + watermark + "\n");
+    }
+    linesInFile++;
+  }
+
+  private void compact() throws IOException {
+    File compacted = new File(file.getAbsolutePath() + ".compact");
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(compacted),
+        StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, Long> entry : watermarks.entrySet()) {
+        writer.write(entry.getKey() + SEPARATOR + entry.getValue() + "\n");
+      }
+    }
+    Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    LOG.debug("compacted " + linesInFile + " watermark lines into " + watermarks.size());
+    linesInFile = watermarks.size();
+  }
+}
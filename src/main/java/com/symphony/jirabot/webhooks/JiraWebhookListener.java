@@ -0,0 +1,297 @@
+/*
+ *
+ *
+ * Copyright 2016 Symphony Communication Services, LLC
+ *
+ * Licensed to Symphony Communication Services, LLC under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+
+package com.symphony.jirabot.webhooks;
+
+import com.symphony.jirabot.models.JiraIssue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Embedded HTTP endpoint receiving JIRA issue webhooks.
+ *
+ * jira:issue_created and jira:issue_updated payloads are turned into a
+ * com.symphony.jirabot.models.JiraIssue carrying the webhook's change as its only history, and
+ * handed to the handler. The handler runs on a single thread, so the events of an issue are
+ * handled in the order JIRA sent them. A request is acknowledged with a 202 once its issue is
+ * queued for the handler; when the queue is full it is answered with a 503, so JIRA sends it
+ * again later instead of the queue growing without bound. Issues still queued when the bot stops
+ * are only picked up again by the reconciliation polls.
+ *
+ * JIRA cannot sign its webhooks, so the URL registered in JIRA carries a shared secret as its
+ * token query parameter (e.g. /jira/webhook?token=...). Requests without it are rejected with a
+ * 403 before their body is read.
+ */
+public class JiraWebhookListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraWebhookListener.class);
+
+  public static final String ISSUE_CREATED = "jira:issue_created";
+  public static final String ISSUE_UPDATED = "jira:issue_updated";
+
+  /**
+   * Query parameter carrying the shared secret
+   */
+  public static final String TOKEN_PARAMETER = "token";
+
+  private final HttpServer server;
+  private final ExecutorService handlerExecutor;
+  private final Consumer<JiraIssue> handler;
+  private final byte[] secret;
+  private final int maxBodyBytes;
+
+  /**
+   * @param bindAddress Address to listen on, e.g. 127.0.0.1 behind a reverse proxy, or 0.0.0.0
+   * for every interface
+   * @param port Port to listen on, 0 for any free port
+   * @param path Path JIRA posts the webhooks to, e.g. /jira/webhook
+   * @param secret Shared secret every webhook has to carry as its token query parameter
+   * @param queueCapacity Number of accepted webhooks that may wait for the handler
+   * @param maxBodyBytes Size above which a webhook is rejected with a 413 without being read
+   * @param handler Receives the issue of every accepted webhook
+   * @throws IllegalArgumentException If the secret is missing, or the queue capacity or body size
+   * is not positive
+   */
+  public JiraWebhookListener(String bindAddress, int port, String path, String secret,
+      int queueCapacity, int maxBodyBytes, Consumer<JiraIssue> handler) {
+    if (secret == null || secret.isEmpty()) {
+      throw new IllegalArgumentException(
+          "a JIRA webhook secret is required, refusing to accept unauthenticated webhooks");
+    }
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException(
+          "JIRA webhook queue capacity must be at least 1, got " + queueCapacity);
+    }
+    if (maxBodyBytes <= 0) {
+      throw new IllegalArgumentException(
+          "JIRA webhook body size limit must be at least 1 byte, got " + maxBodyBytes);
+    }
+    this.handler = handler;
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    this.maxBodyBytes = maxBodyBytes;
+    this.handlerExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(queueCapacity));
+    try {
+      this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "failed to listen for JIRA webhooks on " + bindAddress + ":" + port, e);
+    }
+    this.server.createContext(path, new WebhookHandler());
+  }
+
+  public void start() {
+    server.start();
+    LOG.info("listening for JIRA webhooks on " + server.getAddress());
+  }
+
+  public void stop() {
+    server.stop(0);
+    handlerExecutor.shutdown();
+    try {
+      handlerExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Port the listener is bound to
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Builds the com.symphony.jirabot.models.JiraIssue described by a webhook payload, with the
+   * payload's changelog, if any, as its only history
+   */
+  public static JiraIssue toJiraIssue(JSONObject payload) {
+    JSONObject issue = payload.getJSONObject("issue");
+    JSONArray histories = new JSONArray();
+
+    if (payload.has("changelog")) {
+      JSONObject changelog = payload.getJSONObject("changelog");
+      JSONObject history = new JSONObject();
+      history.put("id", changelog.get("id").toString());
+      history.put("created", issue.getJSONObject("fields").get("updated").toString());
+      history.put("items", changelog.getJSONArray("items"));
+      if (payload.has("user")) {
+        history.put("author", payload.getJSONObject("user"));
+      }
+      histories.put(history);
+    }
+
+    JSONObject changeLog = new JSONObject();
+    changeLog.put("startAt", 0);
+    changeLog.put("maxResults", histories.length());
+    changeLog.put("total", histories.length());
+    changeLog.put("histories", histories);
+    issue.put("changelog", changeLog);
+
+    return new JiraIssue(issue);
+  }
+
+  /**
+   * Whether the request carries the shared secret, compared in constant time
+   */
+  private boolean isAuthorized(HttpExchange exchange) {
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null) {
+      return false;
+    }
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      if (equals < 0 || !TOKEN_PARAMETER.equals(parameter.substring(0, equals))) {
+        continue;
+      }
+      try {
+        String token = URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+        return MessageDigest.isEqual(secret, token.getBytes(StandardCharsets.UTF_8));
+      } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads a request body, unless it is larger than maxBodyBytes
+   *
+   * @return The body, or null if it is too large
+   */
+  private byte[] readBody(HttpExchange exchange) throws IOException {
+    String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (contentLength != null) {
+      try {
+        if (Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+          return null;
+        }
+      } catch (NumberFormatException e) {
+        // the length read below still applies
+      }
+    }
+
+    try (InputStream body = exchange.getRequestBody()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = body.read(buffer)) != -1) {
+        if (bytes.size() + read > maxBodyBytes) {
+          return null;
+        }
+        bytes.write(buffer, 0, read);
+      }
+      return bytes.toByteArray();
+    }
+  }
+
+  private class WebhookHandler implements HttpHandler {
+
+    public void handle(HttpExchange exchange) throws IOException {
+      try {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        if (!isAuthorized(exchange)) {
+          LOG.warn("rejecting JIRA webhook without a valid token from "
+              + exchange.getRemoteAddress());
+          exchange.sendResponseHeaders(403, -1);
+          return;
+        }
+
+        byte[] body = readBody(exchange);
+        if (body == null) {
+          LOG.warn("rejecting JIRA webhook larger than " + maxBodyBytes + " bytes from "
+              + exchange.getRemoteAddress());
+          exchange.sendResponseHeaders(413, -1);
+          return;
+        }
+
+        final JiraIssue issue;
+        try {
+          JSONObject payload =
+              new JSONObject(new JSONTokener(new String(body, StandardCharsets.UTF_8)));
+          String webhookEvent = payload.optString("webhookEvent");
+
+          if (!ISSUE_CREATED.equals(webhookEvent) && !ISSUE_UPDATED.equals(webhookEvent)) {
+            LOG.debug("ignoring JIRA webhook " + webhookEvent);
+            exchange.sendResponseHeaders(204, -1);
+            return;
+          }
+          issue = toJiraIssue(payload);
+        } catch (JSONException | IllegalArgumentException e) {
+          LOG.warn("rejecting malformed JIRA webhook", e);
+          exchange.sendResponseHeaders(400, -1);
+          return;
+        }
+
+        try {
+          handlerExecutor.execute(new Runnable() {
+            public void run() {
+              try {
+                handler.accept(issue);
+              } catch (Throwable e) {
+                LOG.error("failed to handle JIRA webhook for " + issue.getKey(), e);
+              }
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          LOG.warn("too many JIRA webhooks waiting, asking JIRA to send " + issue.getKey()
+              + " again");
+          exchange.sendResponseHeaders(503, -1);
+          return;
+        }
+        exchange.sendResponseHeaders(202, -1);
+      } finally {
+        exchange.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.ratelimit.AdaptiveConcurrencyLimiter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the additive increase and multiplicative decrease steps of AdaptiveConcurrencyLimiter.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    public void limitGrowsByOnePerRoundTripWhileUsedInFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("search", 1, 2, 4, 2);
+
+        List<Integer> limits = new ArrayList<Integer>();
+        for (int i = 0; i < 6; i++) {
+            roundTrip(limiter, limiter.getLimit(), FAST);
+            limits.add(limiter.getLimit());
+        }
+
+        // 2.5, 2.9, 3.24, 3.55, 3.83, 4
+        assertEquals(Arrays.asList(2, 2, 3, 3, 3, 4), limits);
+        assertEquals(0, limiter.getDecreases());
+    }
+
+    @Test
+    public void limitStaysWhenNotUsedInFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("search", 1, 2, 4, 2);
+
+        for (int i = 0; i < 10; i++) {
+            roundTrip(limiter, 1, FAST);
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void risingLatencyCutsTheLimitOncePerRoundTrip() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("search", 1, 10, 20, 2);
+        roundTrip(limiter, 1, FAST);
+
+        roundTrip(limiter, 1, SLOW);
+        roundTrip(limiter, 1, SLOW);
+        assertEquals(9, limiter.getLimit());
+        assertEquals(1, limiter.getDecreases());
+
+        // a round trip later, by the smoothed round trip time of about 20ms
+        Thread.sleep(100);
+        roundTrip(limiter, 1, SLOW);
+        assertEquals(8, limiter.getLimit());
+        assertEquals(2, limiter.getDecreases());
+    }
+
+    @Test
+    public void overloadCutsTheLimitDownToTheFloor() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("search", 8, 10, 20, 2);
+
+        limiter.acquire();
+        limiter.release(FAST, true);
+        assertEquals(9, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+            limiter.release(FAST, true);
+        }
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void acquireWaitsForAPlace() throws Exception {
+        final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter("search", 1, 1, 1, 2);
+        limiter.acquire();
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            public void run() {
+                limiter.acquire();
+                acquired.countDown();
+            }
+        });
+        waiter.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        limiter.cancel();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    /**
+     * Makes numRequests requests at once, all taking rttNanos
+     */
+    private static void roundTrip(AdaptiveConcurrencyLimiter limiter, int numRequests,
+                                  long rttNanos) {
+        for (int i = 0; i < numRequests; i++) {
+            limiter.acquire();
+        }
+        for (int i = 0; i < numRequests; i++) {
+            limiter.release(rttNanos, false);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.AdaptiveProjectPollScheduler;
+import com.symphony.jirabot.SymphonyJiraBot;
+import com.symphony.jirabot.models.JiraProject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives AdaptiveProjectPollScheduler tick by tick against a bot whose polls finish at once.
+ */
+public class AdaptiveProjectPollSchedulerTest {
+
+    /**
+     * Far enough apart for every project to be due again
+     */
+    private static final long TICK_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private long now = System.currentTimeMillis();
+
+    @Test
+    public void intervalHalvesOnUpdatesAndDoublesWhenQuiet() throws Exception {
+        ScriptedBot bot = new ScriptedBot(new SchedulerConfiguration(folder.getRoot(), false),
+            "core");
+        AdaptiveProjectPollScheduler scheduler = new AdaptiveProjectPollScheduler(
+            new SchedulerConfiguration(folder.getRoot(), false), bot);
+
+        bot.numUpdatedIssues.put("core", 0);
+        assertEquals(Arrays.asList(2L, 4L, 8L, 8L), tick(scheduler, "core", 4));
+
+        bot.numUpdatedIssues.put("core", 3);
+        assertEquals(Arrays.asList(4L, 2L, 1L, 1L), tick(scheduler, "core", 4));
+        assertEquals(8, bot.polls.size());
+    }
+
+    @Test
+    public void projectsAreNotPolledBeforeTheyAreDue() throws Exception {
+        ScriptedBot bot = new ScriptedBot(new SchedulerConfiguration(folder.getRoot(), false),
+            "core");
+        AdaptiveProjectPollScheduler scheduler = new AdaptiveProjectPollScheduler(
+            new SchedulerConfiguration(folder.getRoot(), false), bot);
+        bot.numUpdatedIssues.put("core", 0);
+
+        scheduler.pollDueProjects(now);
+        scheduler.pollDueProjects(now);
+        scheduler.pollDueProjects(now + 1000);
+
+        assertEquals(1, bot.polls.size());
+        assertEquals(2, scheduler.getCurrentIntervalInSeconds("core"));
+    }
+
+    @Test
+    public void combinedSearchesRescheduleEachProjectByItsOwnResult() throws Exception {
+        SchedulerConfiguration configuration =
+            new SchedulerConfiguration(folder.getRoot(), true);
+        ScriptedBot bot = new ScriptedBot(configuration, "core", "web");
+        AdaptiveProjectPollScheduler scheduler =
+            new AdaptiveProjectPollScheduler(configuration, bot);
+        bot.numUpdatedIssues.put("core", 0);
+        bot.numUpdatedIssues.put("web", 0);
+        tick(scheduler, "core", 2);
+
+        bot.numUpdatedIssues.put("core", 5);
+        tick(scheduler, "core", 1);
+
+        assertEquals(Arrays.asList(Arrays.asList("core", "web"), Arrays.asList("core", "web"),
+            Arrays.asList("core", "web")), bot.polls);
+        assertEquals(2, scheduler.getCurrentIntervalInSeconds("core"));
+        assertEquals(8, scheduler.getCurrentIntervalInSeconds("web"));
+        // not found in JIRA, so it backs off like a quiet project
+        assertEquals(8, scheduler.getCurrentIntervalInSeconds("docs"));
+    }
+
+    @Test
+    public void failedPollKeepsTheInterval() throws Exception {
+        ScriptedBot bot = new ScriptedBot(new SchedulerConfiguration(folder.getRoot(), false),
+            "core");
+        AdaptiveProjectPollScheduler scheduler = new AdaptiveProjectPollScheduler(
+            new SchedulerConfiguration(folder.getRoot(), false), bot);
+        bot.numUpdatedIssues.put("core", 0);
+        tick(scheduler, "core", 1);
+
+        bot.numUpdatedIssues.remove("core");
+        assertEquals(Arrays.asList(2L, 2L), tick(scheduler, "core", 2));
+    }
+
+    @Test
+    public void rejectsRefreshRatesBelowOneSecond() throws Exception {
+        try {
+            new AdaptiveProjectPollScheduler(
+                new SchedulerConfiguration(folder.getRoot(), false, 0, 8), null);
+            fail("a min refresh rate of 0 never grows");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("JIRA min refresh rate must be at least 1 second, got 0",
+                expected.getMessage());
+        }
+        try {
+            new AdaptiveProjectPollScheduler(
+                new SchedulerConfiguration(folder.getRoot(), false, 8, 4), null);
+            fail("the max refresh rate is below the min");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("JIRA max refresh rate (4s) is below the min refresh rate (8s)",
+                expected.getMessage());
+        }
+    }
+
+    /**
+     * Polls the due projects numTicks times, an hour apart
+     *
+     * @return The project's interval in seconds after each tick
+     */
+    private List<Long> tick(AdaptiveProjectPollScheduler scheduler, String projectName,
+                            int numTicks) {
+        List<Long> intervals = new ArrayList<Long>();
+        for (int i = 0; i < numTicks; i++) {
+            now += TICK_MILLIS;
+            scheduler.pollDueProjects(now);
+            intervals.add(scheduler.getCurrentIntervalInSeconds(projectName));
+        }
+        return intervals;
+    }
+
+    /**
+     * Polls between 1 and 8 seconds apart, for projects core, docs and web
+     */
+    static class SchedulerConfiguration extends SymphonyJiraBotTest.TestConfiguration {
+        private final boolean multiProjectSearch;
+        private final int minRefreshRate;
+        private final int maxRefreshRate;
+
+        SchedulerConfiguration(File folder, boolean multiProjectSearch) {
+            this(folder, multiProjectSearch, 1, 8);
+        }
+
+        SchedulerConfiguration(File folder, boolean multiProjectSearch, int minRefreshRate,
+                               int maxRefreshRate) {
+            super(folder, 1);
+            this.multiProjectSearch = multiProjectSearch;
+            this.minRefreshRate = minRefreshRate;
+            this.maxRefreshRate = maxRefreshRate;
+        }
+
+        @Override
+        public Set<String> getJiraProjectsOfInterest() {
+            return new HashSet<String>(Arrays.asList("core", "docs", "web"));
+        }
+
+        @Override
+        public boolean isJiraMultiProjectSearchEnabled() {
+            return multiProjectSearch;
+        }
+
+        @Override
+        public boolean isJiraWebhookEnabled() {
+            return false;
+        }
+
+        @Override
+        public int getJiraMinRefreshRateInSeconds() {
+            return minRefreshRate;
+        }
+
+        @Override
+        public int getJiraMaxRefreshRateInSeconds() {
+            return maxRefreshRate;
+        }
+    }
+
+    /**
+     * A bot whose polls finish at once with the number of updated issues set for each project,
+     * or fail for a project without one
+     */
+    static class ScriptedBot extends SymphonyJiraBot {
+        final Map<String, Integer> numUpdatedIssues = new ConcurrentHashMap<String, Integer>();
+        final List<List<String>> polls = new ArrayList<List<String>>();
+        private final List<JiraProject> projects = new ArrayList<JiraProject>();
+
+        ScriptedBot(SchedulerConfiguration configuration, String... projectKeys)
+            throws IOException {
+            super(configuration, new SymphonyJiraBotTest.FakeJiraClient(),
+                new SymphonyJiraBotTest.FakeSymphonyClient());
+            for (String key : projectKeys) {
+                projects.add(SymphonyJiraBotTest.project(key.toUpperCase()));
+            }
+        }
+
+        @Override
+        public List<JiraProject> findJiraProjectsOfInterest() {
+            return projects;
+        }
+
+        @Override
+        public CompletableFuture<Integer> pollJiraProject(JiraProject project) {
+            polls.add(Arrays.asList(project.getName()));
+            CompletableFuture<Integer> poll = new CompletableFuture<Integer>();
+            Integer result = numUpdatedIssues.get(project.getName());
+            if (result == null) {
+                poll.completeExceptionally(new RuntimeException("JIRA is down"));
+            } else {
+                poll.complete(result);
+            }
+            return poll;
+        }
+
+        @Override
+        public CompletableFuture<Map<String, Integer>> pollJiraProjects(
+            List<JiraProject> projects) {
+            List<String> names = new ArrayList<String>();
+            Map<String, Integer> results = new HashMap<String, Integer>();
+            for (JiraProject project : projects) {
+                names.add(project.getName());
+                results.put(project.getName(), numUpdatedIssues.get(project.getName()));
+            }
+            Collections.sort(names);
+            polls.add(names);
+            return CompletableFuture.completedFuture(results);
+        }
+    }
+}
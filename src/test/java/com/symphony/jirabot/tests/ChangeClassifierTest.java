@@ -0,0 +1,142 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.models.ChangeClassifier;
+import com.symphony.jirabot.models.JiraIssue.Item.Priority;
+import com.symphony.jirabot.models.JiraIssue.Item.Sentiment;
+import com.symphony.jirabot.models.JiraIssue.Item.SpecialEmoji;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Properties;
+
+/**
+ * Checks the built-in change classification rules against the rules they replaced, and rules
+ * read from a file.
+ */
+public class ChangeClassifierTest {
+
+    private static final String[] FIELDS = {"status", "Status", "assignee", "key", "labels", "Labels",
+        "project", "version", "rank", "Rank", "Link", "link", "summary", "description",
+        "Fix Version", "priority", "resolution", "Sprint", "Story Points"};
+
+    private static final String[] VALUES = {"Open", "In Progress", "Resolved", "Reopened", "Closed",
+        "ready for code review", "Ready for QA", "Done", "open", "in progress", "Ranked higher",
+        "Ranked lower", "higher", "Higher", "Critical", "Paul Pollack", "", "null"};
+
+    @Test
+    public void builtInRulesMatchLegacyRules() {
+        ChangeClassifier classifier = ChangeClassifier.getDefault();
+
+        for (String field : FIELDS) {
+            for (String from : VALUES) {
+                for (String to : VALUES) {
+                    assertEquals(field + ": " + from + " -> " + to,
+                        LegacyChangeRules.classify(field, from, to),
+                        classifier.classify(field, from, to));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packedClassification() {
+        int classification =
+            ChangeClassifier.pack(Priority.MEDIUM, Sentiment.GOOD, SpecialEmoji.Face_Palm);
+
+        assertTrue(ChangeClassifier.hasPriorities(classification, Priority.MEDIUM));
+        assertTrue(ChangeClassifier.hasPriorities(classification, Priority.LOW));
+        assertFalse(ChangeClassifier.hasPriorities(classification, Priority.HIGH));
+        assertTrue(ChangeClassifier.hasPriority(classification, Priority.Medium));
+        assertFalse(ChangeClassifier.hasPriority(classification, Priority.High));
+
+        assertTrue(ChangeClassifier.hasSentiments(classification, Sentiment.GOOD));
+        assertTrue(ChangeClassifier.hasSentiments(classification, Sentiment.NEUTRAL));
+        assertFalse(ChangeClassifier.hasSentiments(classification, Sentiment.BAD));
+        assertTrue(ChangeClassifier.hasSentiment(classification, Sentiment.Excellent));
+        assertFalse(ChangeClassifier.hasSentiment(classification, Sentiment.Poor));
+
+        assertEquals(SpecialEmoji.Face_Palm, ChangeClassifier.getEmoji(classification));
+    }
+
+    @Test
+    public void rulesFromFile() throws Exception {
+        File file = File.createTempFile("jira-change-classification", ".properties");
+        file.deleteOnExit();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("status.*->Deployed\\ to\\ Production=HIGH,GREAT\n");
+            writer.write("status.Deployed\\ to\\ Production->Reopened"
+                + "=HIGH,BAD,Sob_And_Face_Palm\n");
+            writer.write("field.Sprint=MEDIUM,NEUTRAL\n");
+            writer.write("field.labels=MEDIUM,GOOD\n");
+        }
+        ChangeClassifier classifier = ChangeClassifier.withRulesFrom(file);
+
+        assertEquals(ChangeClassifier.pack(Priority.HIGH, Sentiment.GREAT, SpecialEmoji.None),
+            classifier.classify("status", "In Progress", "Deployed to Production"));
+        assertEquals(
+            ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.Sob_And_Face_Palm),
+            classifier.classify("status", "Deployed to Production", "Reopened"));
+        assertEquals(ChangeClassifier.pack(Priority.MEDIUM, Sentiment.NEUTRAL, SpecialEmoji.None),
+            classifier.classify("sprint", "", "Sprint 12"));
+        assertEquals(ChangeClassifier.pack(Priority.MEDIUM, Sentiment.GOOD, SpecialEmoji.None),
+            classifier.classify("labels", "", "bot"));
+
+        // built-in rules the file does not replace still apply
+        assertEquals(ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.Face_Palm),
+            classifier.classify("status", "Closed", "Reopened"));
+        assertEquals(
+            LegacyChangeRules.classify("rank", "", "Ranked higher"),
+            classifier.classify("rank", "", "Ranked higher"));
+    }
+
+    @Test
+    public void overlappingContainsRulesApplyInKeyOrder() {
+        Properties rules = new Properties();
+        rules.setProperty("default", "LOW,NEUTRAL");
+        rules.setProperty("contains.labels.urgent", "HIGH,BAD");
+        rules.setProperty("contains.labels.urgent-fix", "MEDIUM,GOOD");
+
+        // "urgent" sorts before "urgent-fix", whatever order Properties hands the keys out in
+        ChangeClassifier classifier = new ChangeClassifier(rules);
+        assertEquals(ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.None),
+            classifier.classify("labels", "", "urgent-fix"));
+        assertEquals(ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.None),
+            classifier.classify("labels", "", "urgent"));
+        assertEquals(ChangeClassifier.pack(Priority.LOW, Sentiment.NEUTRAL, SpecialEmoji.None),
+            classifier.classify("labels", "", "bot"));
+    }
+
+    @Test
+    public void invalidRules() {
+        assertInvalid("default", "LOW");
+        assertInvalid("default", "LOW,NEUTRAL,Smile");
+        assertInvalid("default", "URGENT,NEUTRAL");
+        assertInvalid("default", "LOW,HAPPY");
+        assertInvalid("fields.labels", "LOW,NEUTRAL");
+
+        try {
+            new ChangeClassifier(new Properties());
+            fail("rules without a default");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertInvalid(String key, String value) {
+        Properties rules = new Properties();
+        rules.setProperty("default", "LOW,NEUTRAL");
+        rules.setProperty(key, value);
+        try {
+            new ChangeClassifier(rules);
+            fail("accepted " + key + "=" + value);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.retry.CircuitBreaker;
+import com.symphony.jirabot.retry.CircuitOpenException;
+
+import org.junit.Test;
+
+/**
+ * Walks a CircuitBreaker through its states.
+ */
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 50;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("jira", 3, OPEN_MILLIS);
+
+        failRequest(breaker);
+        failRequest(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // a success in between starts the count again
+        breaker.acquirePermission();
+        breaker.onSuccess();
+        failRequest(breaker);
+        failRequest(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        failRequest(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertRejected(breaker);
+        assertEquals(1, breaker.getRejected());
+    }
+
+    @Test
+    public void closesAfterSuccessfulTrial() throws Exception {
+        CircuitBreaker breaker = openBreaker();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // only one trial at a time
+        assertRejected(breaker);
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        breaker.acquirePermission();
+        breaker.onSuccess();
+    }
+
+    @Test
+    public void reopensAfterFailedTrial() throws Exception {
+        CircuitBreaker breaker = openBreaker();
+        Thread.sleep(OPEN_MILLIS + 20);
+
+        breaker.acquirePermission();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertRejected(breaker);
+
+        Thread.sleep(OPEN_MILLIS + 20);
+        breaker.acquirePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void openForKeepsTheLongerDelay() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("jira", 3, OPEN_MILLIS);
+        breaker.openFor(10 * OPEN_MILLIS);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // a shorter opening must not shorten the one asked for
+        breaker.openFor(0);
+        Thread.sleep(OPEN_MILLIS + 20);
+        assertRejected(breaker);
+    }
+
+    private static CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker("jira", 2, OPEN_MILLIS);
+        failRequest(breaker);
+        failRequest(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void failRequest(CircuitBreaker breaker) {
+        breaker.acquirePermission();
+        breaker.onFailure();
+    }
+
+    private static void assertRejected(CircuitBreaker breaker) {
+        try {
+            breaker.acquirePermission();
+            fail("request let through while the circuit is " + breaker.getState());
+        } catch (CircuitOpenException expected) {
+            // failed fast
+        }
+    }
+}
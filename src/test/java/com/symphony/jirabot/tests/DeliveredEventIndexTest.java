@@ -0,0 +1,90 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.stores.DeliveredEventIndex;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+/**
+ * Checks that DeliveredEventIndex remembers events across restarts and generations.
+ */
+public class DeliveredEventIndexTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void remembersDeliveredEvents() throws Exception {
+        DeliveredEventIndex index = newIndex(100);
+
+        assertFalse(index.isDelivered("10001", "201934"));
+        index.markDelivered("10001", "201934");
+        assertTrue(index.isDelivered("10001", "201934"));
+        assertFalse(index.isDelivered("10001", "201935"));
+        assertFalse(index.isDelivered("10002", "201934"));
+
+        assertEquals(1, index.getHits());
+        assertEquals(3, index.getMisses());
+    }
+
+    @Test
+    public void remembersDeliveredEventsAfterRestart() throws Exception {
+        DeliveredEventIndex index = newIndex(100);
+        index.markDelivered("10001", "201934");
+        index.flush();
+
+        DeliveredEventIndex restarted = newIndex(100);
+        assertTrue(restarted.isDelivered("10001", "201934"));
+        assertFalse(restarted.isDelivered("10001", "201935"));
+    }
+
+    @Test
+    public void rolloverKeepsThePreviousGeneration() throws Exception {
+        DeliveredEventIndex index = newIndex(100);
+        for (int i = 0; i < 150; i++) {
+            index.markDelivered("issue-" + i, "created");
+        }
+        index.flush();
+
+        // restarted, so only the bloom filters remember: the first 100 events filled generation 0,
+        // the rest went to generation 1
+        DeliveredEventIndex restarted = newIndex(100);
+        for (int i = 0; i < 150; i++) {
+            assertTrue("event " + i, restarted.isDelivered("issue-" + i, "created"));
+        }
+    }
+
+    @Test
+    public void secondRolloverForgetsTheOldestGeneration() throws Exception {
+        DeliveredEventIndex index = newIndex(100);
+        for (int i = 0; i < 250; i++) {
+            index.markDelivered("issue-" + i, "created");
+        }
+        index.flush();
+
+        DeliveredEventIndex restarted = newIndex(100);
+        int oldestRemembered = 0;
+        for (int i = 0; i < 100; i++) {
+            if (restarted.isDelivered("issue-" + i, "created")) {
+                oldestRemembered++;
+            }
+        }
+        // generation 0 was cleared for events 200 to 249, so only false positives are left
+        assertTrue(oldestRemembered + " of the oldest events remembered", oldestRemembered < 5);
+        for (int i = 100; i < 250; i++) {
+            assertTrue("event " + i, restarted.isDelivered("issue-" + i, "created"));
+        }
+    }
+
+    private DeliveredEventIndex newIndex(long capacity) {
+        return new DeliveredEventIndex(new File(folder.getRoot(), "delivered").getPath(),
+            capacity);
+    }
+}
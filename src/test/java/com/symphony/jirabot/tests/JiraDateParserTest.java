@@ -0,0 +1,112 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.models.JiraDateParser;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Checks JiraDateParser against known instants and against SimpleDateFormat.
+ */
+public class JiraDateParserTest {
+
+    @Test
+    public void epoch() {
+        assertEquals(0L, JiraDateParser.parse("1970-01-01T00:00:00.000+0000"));
+        assertEquals(-1L, JiraDateParser.parse("1969-12-31T23:59:59.999+0000"));
+    }
+
+    @Test
+    public void negativeOffset() {
+        // 2016-06-15T17:12:41Z
+        assertEquals(1466010761000L, JiraDateParser.parse("2016-06-15T13:12:41.000-0400"));
+    }
+
+    @Test
+    public void positiveOffsets() {
+        assertEquals(1466010761123L, JiraDateParser.parse("2016-06-15T22:42:41.123+0530"));
+        assertEquals(1466010761123L, JiraDateParser.parse("2016-06-16T07:12:41.123+1400"));
+    }
+
+    @Test
+    public void isoOffsets() {
+        assertEquals(1466010761000L, JiraDateParser.parse("2016-06-15T13:12:41.000-04:00"));
+        assertEquals(1466010761000L, JiraDateParser.parse("2016-06-15T17:12:41.000Z"));
+    }
+
+    @Test
+    public void offsetCrossingDateLine() {
+        assertEquals(JiraDateParser.parse("2017-01-01T00:30:00.000+0000"),
+            JiraDateParser.parse("2016-12-31T23:30:00.000-0100"));
+        assertEquals(JiraDateParser.parse("2016-02-29T23:00:00.000+0000"),
+            JiraDateParser.parse("2016-03-01T01:00:00.000+0200"));
+    }
+
+    @Test
+    public void leapDays() {
+        assertEquals(JiraDateParser.parse("2016-03-01T00:00:00.000+0000") - 86400000L,
+            JiraDateParser.parse("2016-02-29T00:00:00.000+0000"));
+        assertEquals(JiraDateParser.parse("2000-03-01T00:00:00.000+0000") - 86400000L,
+            JiraDateParser.parse("2000-02-29T00:00:00.000+0000"));
+        assertInvalid("2015-02-29T00:00:00.000+0000");
+        assertInvalid("2100-02-29T00:00:00.000+0000");
+    }
+
+    @Test
+    public void sameAsSimpleDateFormat() throws Exception {
+        SimpleDateFormat utc = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+        utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+        SimpleDateFormat jira = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            String local = utc.format(random.nextLong() % 4000000000000L);
+            int offsetMinutes = (random.nextInt(28 * 4) - 12 * 4) * 15;
+            String timestamp = local + (offsetMinutes < 0 ? "-" : "+")
+                + String.format("%02d%02d", Math.abs(offsetMinutes) / 60,
+                    Math.abs(offsetMinutes) % 60);
+
+            assertEquals(timestamp, jira.parse(timestamp).getTime(),
+                JiraDateParser.parse(timestamp));
+        }
+    }
+
+    @Test
+    public void invalidTimestamps() {
+        assertInvalid(null);
+        assertInvalid("");
+        assertInvalid("not a date");
+        assertInvalid("2016-06-15");
+        assertInvalid("2016-06-15T13:12:41-0400");
+        assertInvalid("2016-06-15 13:12:41.000-0400");
+        assertInvalid("2016/06/15T13:12:41.000-0400");
+        assertInvalid("2016-13-15T13:12:41.000-0400");
+        assertInvalid("2016-00-15T13:12:41.000-0400");
+        assertInvalid("2016-06-31T13:12:41.000-0400");
+        assertInvalid("2016-06-15T24:12:41.000-0400");
+        assertInvalid("2016-06-15T13:60:41.000-0400");
+        assertInvalid("2016-06-15T13:12:60.000-0400");
+        assertInvalid("2016-06-15T13:12:41.000");
+        assertInvalid("2016-06-15T13:12:41.000 0400");
+        assertInvalid("2016-06-15T13:12:41.000-04");
+        assertInvalid("2016-06-15T13:12:41.000-0460");
+        assertInvalid("2016-06-15T13:12:41.000+1900");
+        assertInvalid("2016-06-15T13:12:41.000-04000");
+        assertInvalid("2016-06-15T13:12:41.000Z0");
+        assertInvalid("2016-06-15T13:12:4x.000-0400");
+    }
+
+    private static void assertInvalid(String timestamp) {
+        try {
+            JiraDateParser.parse(timestamp);
+            fail("parsed " + timestamp);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.clients.JiraHttpTransport;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Sends requests through JiraHttpTransport to a FakeJira.
+ */
+public class JiraHttpTransportTest {
+
+    private static final String BODY = "{\"key\":\"CORE\"}";
+
+    private FakeJira jira;
+
+    @Before
+    public void startJira() throws Exception {
+        jira = new FakeJira();
+        jira.respond("project", new FakeJira.Responder() {
+            public FakeJira.Response respond(FakeJira.Request request) {
+                return new FakeJira.Response(200, BODY);
+            }
+        });
+    }
+
+    @After
+    public void stopJira() {
+        jira.stop();
+    }
+
+    @Test
+    public void reusesOneConnectionForSequentialRequests() throws Exception {
+        JiraHttpTransport transport = new JiraHttpTransport(jira.newConfiguration());
+        try {
+            String url = jira.getBaseUrl() + "/rest/api/2/project/CORE";
+            for (int i = 0; i < 3; i++) {
+                HttpResponse response =
+                    transport.getHttpClient(new URL(url)).execute(new HttpGet(url));
+                assertEquals(BODY, EntityUtils.toString(response.getEntity()));
+            }
+
+            List<FakeJira.Request> requests = jira.getRequests("project");
+            assertEquals(3, requests.size());
+            assertEquals(requests.get(0).remotePort, requests.get(1).remotePort);
+            assertEquals(requests.get(0).remotePort, requests.get(2).remotePort);
+            assertEquals(1, transport.getPoolStats().getAvailable());
+            assertEquals(0, transport.getPoolStats().getLeased());
+            assertEquals(3 * BODY.length(), transport.getBytesReceived());
+        } finally {
+            transport.close();
+        }
+    }
+
+    @Test
+    public void rejectsKeepAliveBelowOneSecond() {
+        try {
+            new JiraHttpTransport(new FakeJira.Configuration(jira.getBaseUrl()) {
+                @Override
+                public int getJiraKeepAliveInSeconds() {
+                    return 0;
+                }
+            });
+            fail("a keep-alive of 0 keeps connections open forever");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("JIRA keep-alive must be at least 1 second, got 0",
+                expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraIssueDecoder;
+import com.symphony.jirabot.models.JiraUser;
+import com.symphony.jirabot.models.JiraUserPool;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Decodes issues from a token stream with JiraIssueDecoder and compares them with the ones built
+ * by the JiraIssue(JSONObject) constructor.
+ */
+public class JiraIssueDecoderTest {
+
+    private final JiraUserPool userPool = new JiraUserPool(100, 100);
+    private final JiraIssueDecoder decoder = new JiraIssueDecoder(userPool);
+
+    @Test
+    public void decodesLikeTheJsonObjectConstructor() throws Exception {
+        JSONObject issue = JiraIssues.issue("1", "CORE", 2000,
+            JiraIssues.history("11", 1000, "Open", "In Progress"),
+            JiraIssues.history("12", 2000, "In Progress", "Resolved"));
+        issue.put("expand", "operations,editmeta,changelog");
+        issue.getJSONObject("fields")
+            .put("assignee", JiraIssues.user("ryan"))
+            .put("customfield_10010", new JSONObject().put("values", new JSONArray("[1,[2]]")));
+        issue.getJSONObject("changelog").getJSONArray("histories").getJSONObject(0)
+            .getJSONArray("items").getJSONObject(0).put("from", JSONObject.NULL).put("to", "3");
+
+        JiraIssue decoded = decodeIssue(issue.toString());
+
+        assertEquals(describe(new JiraIssue(issue)), describe(decoded));
+    }
+
+    @Test
+    public void issueWithoutAssigneeOrHistories() throws Exception {
+        JSONObject issue = JiraIssues.issue("1", "CORE", 2000);
+
+        JiraIssue decoded = decodeIssue(issue.toString());
+
+        assertEquals(describe(new JiraIssue(issue)), describe(decoded));
+        assertNull(decoded.getAssignee());
+        assertEquals(0, decoded.getChangeLog().getHistories().length);
+    }
+
+    @Test
+    public void invalidIssueIsSkippedUpToTheNextOne() throws Exception {
+        JSONObject invalid = JiraIssues.issue("1", "CORE", 2000,
+            JiraIssues.history("11", 1000, "Open", "In Progress"));
+        invalid.getJSONObject("fields").put("updated", "yesterday");
+        JSONObject valid = JiraIssues.issue("2", "CORE", 2000);
+        String issues = new JSONArray().put(invalid).put(valid).toString();
+
+        try (JsonParser parser = new JsonFactory().createParser(issues)) {
+            assertEquals(JsonToken.START_ARRAY, parser.nextToken());
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            try {
+                decoder.decodeIssue(parser);
+                fail("the issue has an invalid timestamp");
+            } catch (IllegalArgumentException expected) {
+                assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+            }
+
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            assertEquals("2", decoder.decodeIssue(parser).getId());
+            assertEquals(JsonToken.END_ARRAY, parser.nextToken());
+        }
+    }
+
+    @Test
+    public void usersAreSharedThroughThePool() throws Exception {
+        JiraIssue first = decodeIssue(JiraIssues.issue("1", "CORE", 2000,
+            JiraIssues.history("11", 1000, "Open", "In Progress")).toString());
+        JiraIssue second = decodeIssue(JiraIssues.issue("2", "CORE", 2000).toString());
+
+        assertSame(first.getCreator(), first.getReporter());
+        assertSame(first.getCreator(), second.getCreator());
+        assertEquals(2, userPool.size());
+    }
+
+    @Test
+    public void cutoffDropsOlderHistoriesAndIssues() throws Exception {
+        JSONObject issue = JiraIssues.issue("1", "CORE", 3000,
+            JiraIssues.history("11", 1000, "Open", "In Progress"),
+            JiraIssues.history("12", 2000, "In Progress", "Resolved"),
+            JiraIssues.history("13", 3000, "Resolved", "Closed"));
+
+        JiraIssue decoded = decodeIssue(issue.toString(), cutoff("CORE", 2000));
+        assertEquals(1, decoded.getChangeLog().getHistories().length);
+        assertEquals("13", decoded.getChangeLog().getHistories()[0].getId());
+        assertEquals(3, decoded.getChangeLog().getNumHistoriesReturned());
+
+        assertNull(decodeIssue(issue.toString(), cutoff("CORE", 3000)));
+        // the cutoff is per project
+        assertEquals(3, decodeIssue(issue.toString(), cutoff("WEB", 3000))
+            .getChangeLog().getHistories().length);
+    }
+
+    @Test
+    public void cutoffAppliesToChangelogsBeforeTheFields() throws Exception {
+        JSONObject issue = JiraIssues.issue("1", "CORE", 3000,
+            JiraIssues.history("11", 1000, "Open", "In Progress"),
+            JiraIssues.history("12", 3000, "In Progress", "Resolved"));
+        String changeLogFirst = "{\"changelog\":" + issue.getJSONObject("changelog")
+            + ",\"id\":\"1\",\"self\":\"" + issue.getString("self") + "\",\"key\":\"CORE-1\""
+            + ",\"fields\":" + issue.getJSONObject("fields") + "}";
+
+        JiraIssue decoded = decodeIssue(changeLogFirst, cutoff("CORE", 2000));
+
+        assertEquals(1, decoded.getChangeLog().getHistories().length);
+        assertEquals("12", decoded.getChangeLog().getHistories()[0].getId());
+        assertNull(decodeIssue(changeLogFirst, cutoff("CORE", 3000)));
+    }
+
+    private JiraIssue decodeIssue(String issue) throws IOException {
+        return decodeIssue(issue, null);
+    }
+
+    private JiraIssue decodeIssue(String issue, JiraIssueDecoder.Cutoff cutoff)
+        throws IOException {
+        try (JsonParser parser = new JsonFactory().createParser(issue)) {
+            parser.nextToken();
+            return decoder.decodeIssue(parser, cutoff);
+        }
+    }
+
+    /**
+     * Cutoff at the given time for one project, keeping everything of the others
+     */
+    private static JiraIssueDecoder.Cutoff cutoff(final String projectKey,
+                                                  final long updatedSinceMillis) {
+        return new JiraIssueDecoder.Cutoff() {
+            public Date getUpdatedSince(String key) {
+                return projectKey.equals(key) ? new Date(updatedSinceMillis) : null;
+            }
+        };
+    }
+
+    /**
+     * Every value of an issue the bot reads, as text
+     */
+    static String describe(JiraIssue issue) {
+        StringBuilder description = new StringBuilder()
+            .append(issue.getId()).append(' ').append(issue.getSelf()).append(' ')
+            .append(issue.getKey()).append(' ').append(issue.getCreated().getTime()).append(' ')
+            .append(issue.getUpdated().getTime()).append(' ').append(issue.getSummary())
+            .append(' ').append(issue.getProjectKey()).append(' ').append(issue.getProjectName())
+            .append(' ').append(issue.getWatchesLink()).append(' ')
+            .append(describe(issue.getPriority())).append(' ')
+            .append(describe(issue.getStatus())).append(' ')
+            .append(describe(issue.getAssignee())).append(' ')
+            .append(describe(issue.getCreator())).append(' ')
+            .append(describe(issue.getReporter())).append('\n');
+
+        JiraIssue.ChangeLog changeLog = issue.getChangeLog();
+        description.append(changeLog.getStartAt()).append(' ').append(changeLog.getMaxResults())
+            .append(' ').append(changeLog.getTotal()).append('\n');
+        for (JiraIssue.History history : changeLog.getHistories()) {
+            description.append(history.getId()).append(' ')
+                .append(history.getCreated().getTime()).append(' ')
+                .append(describe(history.getAuthor())).append('\n');
+            for (JiraIssue.Item item : history.getItems()) {
+                description.append("  ").append(item.getField()).append(' ')
+                    .append(item.getFieldType()).append(' ').append(item.getFrom()).append(' ')
+                    .append(item.getFromString()).append(' ').append(item.getTo()).append(' ')
+                    .append(item.getToString()).append('\n');
+            }
+        }
+        return description.toString();
+    }
+
+    private static String describe(JiraIssue.Priority priority) {
+        return priority == null ? "null" : priority.getName() + "/" + priority.getId();
+    }
+
+    private static String describe(JiraUser user) {
+        return user == null ? "null"
+            : user.getSelf() + "/" + user.getDisplayName() + "/" + user.getEmailAddress();
+    }
+}
@@ -0,0 +1,45 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraIssuePage;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Checks that JiraIssuePage pages by the issues JIRA returned, not by the issues kept.
+ */
+public class JiraIssuePageTest {
+
+    @Test
+    public void skippedIssuesStillMoveToTheNextPage() {
+        // a whole page of issues skipped while decoding is not the end of the search
+        JiraIssuePage page =
+            new JiraIssuePage(Collections.<JiraIssue>emptyList(), 50, 50, 120);
+
+        assertFalse(page.isLastPage());
+        assertEquals(100, page.getNextStartAt());
+        assertEquals(50, page.getIssuesRead());
+    }
+
+    @Test
+    public void lastPageOnceAllIssuesWereRead() {
+        JiraIssuePage page =
+            new JiraIssuePage(Collections.<JiraIssue>emptyList(), 100, 20, 120);
+        assertTrue(page.isLastPage());
+    }
+
+    @Test
+    public void emptyPageIsLast() {
+        // the search matched fewer issues by the time this page was read
+        JiraIssuePage page =
+            new JiraIssuePage(Collections.<JiraIssue>emptyList(), 100, 0, 120);
+        assertTrue(page.isLastPage());
+        assertEquals(100, page.getNextStartAt());
+    }
+}
@@ -0,0 +1,103 @@
+package com.symphony.jirabot.tests;
+
+import com.symphony.jirabot.models.JiraIssue;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Builds JIRA issues as the REST API returns them, with only the fields the bot reads.
+ */
+final class JiraIssues {
+
+    static final String BASE_URL = "https://jira.example.com/rest/api/2/";
+
+    private JiraIssues() {
+    }
+
+    /**
+     * An issue of a project, with its embedded changelog holding all the given histories
+     */
+    static JSONObject issue(String id, String projectKey, long updatedMillis,
+                            JSONObject... histories) {
+        return issueWithChangeLog(id, projectKey, updatedMillis,
+            changeLog(0, histories.length, histories));
+    }
+
+    static JSONObject issueWithChangeLog(String id, String projectKey, long updatedMillis,
+                                         JSONObject changeLog) {
+        JSONObject fields = new JSONObject()
+            .put("summary", "Issue " + id)
+            .put("created", date(0))
+            .put("updated", date(updatedMillis))
+            .put("project", new JSONObject().put("key", projectKey)
+                .put("name", projectKey.toLowerCase()))
+            .put("watches", new JSONObject().put("self", BASE_URL + "issue/" + id + "/watchers"))
+            .put("priority", new JSONObject().put("name", "Major").put("id", "3"))
+            .put("status", new JSONObject().put("name", "Open").put("id", "1"))
+            .put("creator", user("paul"))
+            .put("reporter", user("paul"));
+        return new JSONObject()
+            .put("id", id)
+            .put("self", BASE_URL + "issue/" + id)
+            .put("key", projectKey + "-" + id)
+            .put("fields", fields)
+            .put("changelog", changeLog);
+    }
+
+    /**
+     * An embedded changelog, which is truncated when total is above the number of histories
+     */
+    static JSONObject changeLog(int startAt, int total, JSONObject... histories) {
+        JSONArray array = new JSONArray();
+        for (JSONObject history : histories) {
+            array.put(history);
+        }
+        return new JSONObject()
+            .put("startAt", startAt)
+            .put("maxResults", histories.length)
+            .put("total", total)
+            .put("histories", array);
+    }
+
+    /**
+     * A history moving an issue from one status to another
+     */
+    static JSONObject history(String id, long createdMillis, String fromStatus,
+                              String toStatus) {
+        JSONObject item = new JSONObject()
+            .put("field", "status")
+            .put("fieldtype", "jira")
+            .put("fromString", fromStatus)
+            .put("toString", toStatus);
+        return new JSONObject()
+            .put("id", id)
+            .put("created", date(createdMillis))
+            .put("author", user("ryan"))
+            .put("items", new JSONArray().put(item));
+    }
+
+    static JSONObject user(String name) {
+        return new JSONObject()
+            .put("self", BASE_URL + "user?username=" + name)
+            .put("displayName", name)
+            .put("emailAddress", name + "@example.com");
+    }
+
+    static JiraIssue toIssue(JSONObject issue) {
+        return new JiraIssue(issue);
+    }
+
+    /**
+     * Formats a time the way JIRA does, e.g. 2016-06-16T12:10:22.456+0000
+     */
+    static String date(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
@@ -0,0 +1,278 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.clients.JiraOauthClient;
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraProject;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Runs JiraOauthClient against a FakeJira on localhost.
+ */
+public class JiraOauthClientTest {
+
+    private FakeJira jira;
+    private final FakeJira.Searches searches = new FakeJira.Searches();
+
+    @Before
+    public void startJira() throws Exception {
+        jira = new FakeJira();
+        jira.respond("search", searches);
+    }
+
+    @After
+    public void stopJira() {
+        jira.stop();
+    }
+
+    @Test
+    public void pagingDoesNotSkipIssuesUpdatedBetweenPages() throws Exception {
+        searches.add(JiraIssues.issue("1", "CORE", 1000), JiraIssues.issue("2", "CORE", 2000),
+            JiraIssues.issue("3", "CORE", 2000), JiraIssues.issue("4", "CORE", 2000),
+            JiraIssues.issue("5", "CORE", 3000));
+        jira.respond("search", new FakeJira.Responder() {
+            public FakeJira.Response respond(FakeJira.Request request) throws IOException {
+                if (jira.getRequests("search").size() == 2) {
+                    // moves issue 1 from the first page to the end, which startAt paging skips
+                    searches.update("1", 4000);
+                }
+                return searches.respond(request);
+            }
+        });
+
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5", "1"), search(newClient(2)));
+
+        List<FakeJira.Request> requests = jira.getRequests("search");
+        assertEquals(4, requests.size());
+        assertEquals("project in (\"CORE\") AND updatedDate > 0 ORDER BY updated ASC",
+            requests.get(0).query.get("jql"));
+        assertEquals("project in (\"CORE\") AND updatedDate >= 2000 ORDER BY updated ASC",
+            requests.get(1).query.get("jql"));
+    }
+
+    @Test
+    public void pagesUpdatedAtTheSameTimeAreSteppedOver() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            searches.add(JiraIssues.issue(String.valueOf(i), "CORE", 2000));
+        }
+
+        assertEquals(Arrays.asList("1", "2", "3", "4", "5"), search(newClient(2)));
+
+        List<FakeJira.Request> requests = jira.getRequests("search");
+        assertEquals(4, requests.size());
+        assertEquals("0", requests.get(1).query.get("startAt"));
+        assertEquals("2", requests.get(2).query.get("startAt"));
+        assertEquals("4", requests.get(3).query.get("startAt"));
+    }
+
+    @Test
+    public void truncatedChangeLogsAreCompletedWithoutReorderingIssues() throws Exception {
+        final JSONObject[] histories = {
+            JiraIssues.history("11", 1100, "Open", "In Progress"),
+            JiraIssues.history("12", 1200, "In Progress", "Resolved"),
+            JiraIssues.history("13", 1300, "Resolved", "Closed")};
+        searches.add(
+            JiraIssues.issueWithChangeLog("1", "CORE", 1300,
+                JiraIssues.changeLog(0, histories.length, histories[0])),
+            JiraIssues.issue("2", "CORE", 2000, JiraIssues.history("21", 2000, "Open", "Closed")));
+        jira.respond("issue/CORE-1/changelog", new FakeJira.Responder() {
+            public FakeJira.Response respond(FakeJira.Request request) throws IOException {
+                try {
+                    // issue 2 is ready long before the rest of issue 1's changelog
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                int startAt = Integer.parseInt(request.query.get("startAt"));
+                int maxResults = Integer.parseInt(request.query.get("maxResults"));
+                JSONArray values = new JSONArray();
+                for (int i = startAt; i < Math.min(histories.length, startAt + maxResults); i++) {
+                    values.put(histories[i]);
+                }
+                return FakeJira.Response.json(new JSONObject()
+                    .put("startAt", startAt)
+                    .put("maxResults", maxResults)
+                    .put("total", histories.length)
+                    .put("values", values));
+            }
+        });
+        JiraOauthClient client = newClient(50);
+
+        List<JiraIssue> issues = searchIssues(client);
+
+        assertEquals(2, issues.size());
+        assertEquals("1", issues.get(0).getId());
+        assertEquals("2", issues.get(1).getId());
+        List<String> historyIds = new ArrayList<String>();
+        for (JiraIssue.History history : issues.get(0).getChangeLog().getHistories()) {
+            historyIds.add(history.getId());
+        }
+        assertEquals(Arrays.asList("11", "12", "13"), historyIds);
+        assertEquals(1, client.getNumIssuesWithTruncatedChangeLog());
+
+        List<FakeJira.Request> requests = jira.getRequests("issue/CORE-1/changelog");
+        assertEquals(1, requests.size());
+        assertEquals("1", requests.get(0).query.get("startAt"));
+        assertEquals("2", requests.get(0).query.get("maxResults"));
+    }
+
+    @Test
+    public void combinedSearchSkipsIssuesBeforeEachProjectsOwnCutoff() throws Exception {
+        searches.add(JiraIssues.issue("1", "CORE", 1000), JiraIssues.issue("2", "WEB", 1000),
+            JiraIssues.issue("3", "WEB", 3000));
+        Map<JiraProject, Date> updatedSinceByProject = new LinkedHashMap<JiraProject, Date>();
+        updatedSinceByProject.put(SymphonyJiraBotTest.project("CORE"), new Date(0));
+        updatedSinceByProject.put(SymphonyJiraBotTest.project("WEB"), new Date(2000));
+
+        assertEquals(Arrays.asList("1", "3"), search(newClient(50), updatedSinceByProject));
+
+        List<FakeJira.Request> requests = jira.getRequests("search");
+        assertEquals(1, requests.size());
+        assertEquals("project in (\"CORE\",\"WEB\") AND updatedDate > 0 ORDER BY updated ASC",
+            requests.get(0).query.get("jql"));
+    }
+
+    @Test
+    public void longProjectListsAreSplitAcrossSearches() throws Exception {
+        Map<JiraProject, Date> updatedSinceByProject = new LinkedHashMap<JiraProject, Date>();
+        for (int i = 0; i < 300; i++) {
+            updatedSinceByProject.put(SymphonyJiraBotTest.project("PROJECT" + i), new Date(0));
+        }
+
+        search(newClient(50), updatedSinceByProject);
+
+        List<FakeJira.Request> requests = jira.getRequests("search");
+        assertTrue(requests.size() > 1);
+        Set<String> searchedKeys = new HashSet<String>();
+        for (FakeJira.Request request : requests) {
+            String jql = request.query.get("jql");
+            String projectList = jql.substring(jql.indexOf('(') + 1, jql.indexOf(')'));
+            assertTrue(URLEncoder.encode(projectList, "UTF-8").length() <= 2000);
+            for (String key : projectList.split(",")) {
+                assertTrue(key, searchedKeys.add(key));
+            }
+        }
+        assertEquals(300, searchedKeys.size());
+    }
+
+    @Test
+    public void searchesAskOnlyForTheFieldsTheBotReads() throws Exception {
+        searches.add(JiraIssues.issue("1", "CORE", 1000));
+        JiraOauthClient client = new JiraOauthClient(
+            new FakeJira.Configuration(jira.getBaseUrl()) {
+                @Override
+                public Set<String> getJiraExtraIssueFields() {
+                    return new LinkedHashSet<String>(Arrays.asList("customfield_10010", "summary"));
+                }
+            });
+
+        assertEquals(Arrays.asList("1"), search(client));
+
+        FakeJira.Request request = jira.getRequests("search").get(0);
+        List<String> fields = new ArrayList<String>(Arrays.asList(JiraIssue.FIELDS));
+        fields.add("customfield_10010");
+        assertEquals(fields, Arrays.asList(request.query.get("fields").split(",")));
+        assertEquals("changelog", request.query.get("expand"));
+    }
+
+    @Test
+    public void cachedProjectsAreRevalidatedWithTheirEtag() throws Exception {
+        final AtomicReference<String> etag = new AtomicReference<String>("\"v1\"");
+        jira.respond("project", new FakeJira.Responder() {
+            public FakeJira.Response respond(FakeJira.Request request) {
+                if (etag.get().equals(request.headers.getFirst("If-None-Match"))) {
+                    return new FakeJira.Response(304, null);
+                }
+                String key = etag.get().equals("\"v1\"") ? "CORE" : "WEB";
+                return FakeJira.Response.json(new JSONArray().put(new JSONObject()
+                    .put("key", key).put("name", key.toLowerCase())))
+                    .withHeader("ETag", etag.get());
+            }
+        });
+        JiraOauthClient client = newClient(50);
+
+        assertEquals("CORE", client.getAllProjects()[0].getKey());
+        assertEquals("CORE", client.getAllProjects()[0].getKey());
+        etag.set("\"v2\"");
+        assertEquals("WEB", client.getAllProjects()[0].getKey());
+
+        List<FakeJira.Request> requests = jira.getRequests("project");
+        assertEquals(3, requests.size());
+        assertNull(requests.get(0).headers.getFirst("If-None-Match"));
+        assertEquals("\"v1\"", requests.get(1).headers.getFirst("If-None-Match"));
+        assertEquals("\"v1\"", requests.get(2).headers.getFirst("If-None-Match"));
+        assertEquals(2, client.getResponseCacheMisses());
+        assertEquals(1, client.getResponseCacheRevalidations());
+    }
+
+    private JiraOauthClient newClient(final int issuesPerPage) {
+        return new JiraOauthClient(new FakeJira.Configuration(jira.getBaseUrl()) {
+            @Override
+            public int getMaxResultsForGettingJiraIssuesPerProject() {
+                return issuesPerPage;
+            }
+        });
+    }
+
+    /**
+     * Searches project CORE from the epoch
+     *
+     * @return Ids of the issues handed over, in order
+     */
+    private static List<String> search(JiraOauthClient client) throws IOException {
+        List<String> ids = new ArrayList<String>();
+        for (JiraIssue issue : searchIssues(client)) {
+            ids.add(issue.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Searches several projects at once
+     *
+     * @return Ids of the issues handed over, in order
+     */
+    private static List<String> search(JiraOauthClient client,
+                                       Map<JiraProject, Date> updatedSinceByProject) {
+        final List<String> ids = new ArrayList<String>();
+        client.forEachIssueForProjects(updatedSinceByProject, new Consumer<JiraIssue>() {
+            public void accept(JiraIssue issue) {
+                ids.add(issue.getId());
+            }
+        });
+        return ids;
+    }
+
+    private static List<JiraIssue> searchIssues(JiraOauthClient client) throws IOException {
+        final List<JiraIssue> issues = new ArrayList<JiraIssue>();
+        client.forEachIssueForProject(SymphonyJiraBotTest.project("CORE"), new Date(0),
+            new Consumer<JiraIssue>() {
+                public void accept(JiraIssue issue) {
+                    issues.add(issue);
+                }
+            });
+        return issues;
+    }
+}
@@ -0,0 +1,85 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.clients.JiraProjectCatalogue;
+import com.symphony.jirabot.models.JiraProject;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks when JiraProjectCatalogue goes back to JIRA for the list of projects.
+ */
+public class JiraProjectCatalogueTest {
+
+    @Test
+    public void loadsOnceUntilTheTtlExpires() throws Exception {
+        ProjectListingClient jiraClient = new ProjectListingClient();
+        jiraClient.projects = new JiraProject[] {SymphonyJiraBotTest.project("CORE")};
+        JiraProjectCatalogue catalogue = new JiraProjectCatalogue(jiraClient, 3600);
+
+        assertEquals("CORE", catalogue.getProjectForName("core").getKey());
+        assertNull(catalogue.getProjectForName("web"));
+        // the catalogue was loaded less than a minute ago
+        catalogue.requestRefresh();
+        Thread.sleep(100);
+
+        assertEquals(1, jiraClient.listings.get());
+    }
+
+    @Test
+    public void failedLoadIsRetriedOnRequestOncePerMinute() throws Exception {
+        ProjectListingClient jiraClient = new ProjectListingClient();
+        jiraClient.listingFailure = new RuntimeException("JIRA is down");
+        JiraProjectCatalogue catalogue = new JiraProjectCatalogue(jiraClient, 3600);
+
+        assertNull(catalogue.getProjectForName("core"));
+        assertEquals(0, catalogue.getLastRefreshMillis());
+
+        jiraClient.listingFailure = null;
+        jiraClient.projects = new JiraProject[] {SymphonyJiraBotTest.project("CORE")};
+        catalogue.requestRefresh();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (catalogue.getLastRefreshMillis() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("CORE", catalogue.getProjectForName("core").getKey());
+
+        catalogue.requestRefresh();
+        Thread.sleep(100);
+        assertEquals(2, jiraClient.listings.get());
+    }
+
+    @Test
+    public void rejectsTtlBelowOneSecond() {
+        try {
+            new JiraProjectCatalogue(new ProjectListingClient(), 0);
+            fail("a TTL of 0 would refresh continuously");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("JIRA project catalogue TTL must be at least 1 second, got 0",
+                expected.getMessage());
+        }
+    }
+
+    /**
+     * Lists the projects set, or fails, counting the listings
+     */
+    static class ProjectListingClient extends SymphonyJiraBotTest.FakeJiraClient {
+        final AtomicInteger listings = new AtomicInteger();
+        volatile JiraProject[] projects = new JiraProject[0];
+        volatile RuntimeException listingFailure;
+
+        @Override
+        public JiraProject[] getAllProjects() {
+            listings.incrementAndGet();
+            if (listingFailure != null) {
+                throw listingFailure;
+            }
+            return projects;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.symphony.jirabot.stores.JiraResponseCache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+/**
+ * Checks the memory and disk tiers of JiraResponseCache.
+ */
+public class JiraResponseCacheTest {
+
+    private static final String URL = "https://jira.example.com/rest/api/2/project/CORE";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsValidatorsForRevalidation() throws Exception {
+        JiraResponseCache cache = new JiraResponseCache(1024 * 1024, null, 0);
+        assertNull(cache.get(URL));
+
+        cache.put(URL, "{\"key\":\"CORE\"}", "\"v1\"", "Tue, 15 Nov 2016 08:12:31 GMT", true);
+        Thread.sleep(20);
+        JiraResponseCache.Entry stale = cache.get(URL);
+        assertEquals("\"v1\"", stale.getEtag());
+        assertEquals("Tue, 15 Nov 2016 08:12:31 GMT", stale.getLastModified());
+        assertTrue(stale.getAgeMillis() >= 20);
+
+        // what the client does on a 304 Not Modified
+        JiraResponseCache.Entry revalidated = cache.revalidated(stale);
+        assertEquals("{\"key\":\"CORE\"}", revalidated.getBody());
+        assertEquals("\"v1\"", revalidated.getEtag());
+        assertTrue(revalidated.getAgeMillis() < 20);
+        assertEquals(revalidated, cache.get(URL));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFromMemory() {
+        // room for two of the responses below
+        JiraResponseCache cache = new JiraResponseCache(2 * 2 * (URL.length() + 101), null, 0);
+        cache.put(URL + "A", body(100), null, null, true);
+        cache.put(URL + "B", body(100), null, null, true);
+        cache.get(URL + "A");
+        cache.put(URL + "C", body(100), null, null, true);
+
+        assertNotNull(cache.get(URL + "A"));
+        assertNull(cache.get(URL + "B"));
+        assertNotNull(cache.get(URL + "C"));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void readsResponsesBackAfterRestart() throws Exception {
+        File directory = new File(folder.getRoot(), "responses");
+        new JiraResponseCache(1024 * 1024, directory, 1024 * 1024)
+            .put(URL, "{\"key\":\"CORE\"}", "\"v1\"", null, true);
+
+        JiraResponseCache.Entry entry =
+            new JiraResponseCache(1024 * 1024, directory, 1024 * 1024).get(URL);
+        assertEquals("{\"key\":\"CORE\"}", entry.getBody());
+        assertEquals("\"v1\"", entry.getEtag());
+        assertNull(entry.getLastModified());
+    }
+
+    @Test
+    public void keepsResponsesOffDiskWhenAsked() throws Exception {
+        File directory = new File(folder.getRoot(), "responses");
+        JiraResponseCache cache = new JiraResponseCache(1024 * 1024, directory, 1024 * 1024);
+        cache.put(URL + "/myself", "{\"emailAddress\":\"bot@example.com\"}", null, null, false);
+        cache.revalidated(cache.get(URL + "/myself"));
+
+        assertNotNull(cache.get(URL + "/myself"));
+        assertEquals(0, directory.list().length);
+        assertNull(new JiraResponseCache(1024 * 1024, directory, 1024 * 1024)
+            .get(URL + "/myself"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedFromDisk() throws Exception {
+        File directory = new File(folder.getRoot(), "responses");
+        // nothing stays in memory, so every read goes to the files
+        JiraResponseCache cache = new JiraResponseCache(0, directory, 2500);
+        cache.put(URL + "A", body(1000), null, null, true);
+        cache.put(URL + "B", body(1000), null, null, true);
+        assertNotNull(cache.get(URL + "A"));
+        cache.put(URL + "C", body(1000), null, null, true);
+
+        assertEquals(2, directory.list().length);
+        assertTrue(cache.getBytesOnDisk() <= 2500);
+        assertEquals(1, cache.getDiskEvictions());
+        assertNotNull(cache.get(URL + "A"));
+        assertNull(cache.get(URL + "B"));
+        assertNotNull(cache.get(URL + "C"));
+
+        // a smaller bound after a restart evicts the files over it
+        JiraResponseCache restarted = new JiraResponseCache(0, directory, 1500);
+        assertEquals(1, directory.list().length);
+        assertEquals(1, restarted.getDiskEvictions());
+    }
+
+    @Test
+    public void filesAreReadableByOwnerOnly() throws Exception {
+        File directory = new File(folder.getRoot(), "responses");
+        JiraResponseCache cache = new JiraResponseCache(1024 * 1024, directory, 1024 * 1024);
+        assumeTrue(directory.toPath().getFileSystem().supportedFileAttributeViews()
+            .contains("posix"));
+        cache.put(URL, "{}", null, null, true);
+
+        assertEquals("rwx------", PosixFilePermissions.toString(
+            Files.getPosixFilePermissions(directory.toPath())));
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        assertEquals("rw-------", PosixFilePermissions.toString(
+            Files.getPosixFilePermissions(files[0].toPath())));
+    }
+
+    private static String body(int length) {
+        char[] body = new char[length];
+        Arrays.fill(body, 'x');
+        return new String(body);
+    }
+}
@@ -0,0 +1,108 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.clients.JiraUserCache;
+import com.symphony.jirabot.models.JiraUser;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Checks what JiraUserCache keeps, for how long, and what it loads again.
+ */
+public class JiraUserCacheTest {
+
+    private final Map<String, JiraUser> usersByAddress = new HashMap<String, JiraUser>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Function<String, JiraUser> loader = new Function<String, JiraUser>() {
+        public JiraUser apply(String emailAddress) {
+            loads.incrementAndGet();
+            if (emailAddress.contains("broken")) {
+                throw new RuntimeException("JIRA is down");
+            }
+            return usersByAddress.get(emailAddress);
+        }
+    };
+
+    @Test
+    public void usersAreCachedByNormalizedAddress() {
+        JiraUser user = newUser("jane@example.com");
+        usersByAddress.put("jane@example.com", user);
+        JiraUserCache cache = new JiraUserCache(loader, 10, 3600, 3600);
+
+        assertSame(user, cache.get("jane@example.com"));
+        assertSame(user, cache.get(" Jane@Example.com "));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void missingUsersAreCachedWithTheirOwnTtl() {
+        usersByAddress.put("jane@example.com", newUser("jane@example.com"));
+        // users found are kept, addresses without a user expire at once
+        JiraUserCache cache = new JiraUserCache(loader, 10, 3600, 0);
+
+        assertNull(cache.get("nobody@example.com"));
+        assertNull(cache.get("nobody@example.com"));
+        assertEquals(2, loads.get());
+
+        cache = new JiraUserCache(loader, 10, 0, 3600);
+        loads.set(0);
+        assertNull(cache.get("nobody@example.com"));
+        assertNull(cache.get("nobody@example.com"));
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getNegativeHits());
+
+        cache.get("jane@example.com");
+        cache.get("jane@example.com");
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() {
+        JiraUserCache cache = new JiraUserCache(loader, 10, 3600, 3600);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("broken@example.com");
+                fail("expected the load to fail");
+            } catch (RuntimeException e) {
+                assertEquals("JIRA is down", e.getMessage());
+            }
+        }
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedAddressIsEvicted() {
+        JiraUserCache cache = new JiraUserCache(loader, 2, 3600, 3600);
+        cache.get("a@example.com");
+        cache.get("b@example.com");
+        cache.get("a@example.com");
+        cache.get("c@example.com");
+        assertEquals(2, cache.size());
+        assertEquals(3, loads.get());
+
+        cache.get("a@example.com");
+        assertEquals(3, loads.get());
+        cache.get("b@example.com");
+        assertEquals(4, loads.get());
+    }
+
+    private static JiraUser newUser(String emailAddress) {
+        return new JiraUser(new JSONObject()
+            .put("self", "https://jira.example.com/rest/api/2/user?username=" + emailAddress)
+            .put("displayName", emailAddress)
+            .put("emailAddress", emailAddress));
+    }
+}
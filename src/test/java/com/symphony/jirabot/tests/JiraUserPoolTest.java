@@ -0,0 +1,94 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.symphony.jirabot.models.JiraUser;
+import com.symphony.jirabot.models.JiraUserPool;
+
+import org.junit.Test;
+
+/**
+ * Checks which users and strings JiraUserPool shares.
+ */
+public class JiraUserPoolTest {
+
+    private static final String PAUL = JiraIssues.BASE_URL + "user?username=paul";
+    private static final String RYAN = JiraIssues.BASE_URL + "user?username=ryan";
+
+    @Test
+    public void sharesOneUserPerSelfLink() {
+        JiraUserPool pool = new JiraUserPool(10, 10);
+
+        JiraUser first = pool.intern(PAUL, "Paul", "paul@example.com");
+        JiraUser second = pool.intern(new String(PAUL), new String("Paul"),
+            new String("paul@example.com"));
+
+        assertSame(first, second);
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void changedUserReplacesThePooledOne() {
+        JiraUserPool pool = new JiraUserPool(10, 10);
+        JiraUser before = pool.intern(PAUL, "Paul", "paul@example.com");
+
+        JiraUser after = pool.intern(PAUL, "Paul Smith", "paul@example.com");
+
+        assertNotSame(before, after);
+        assertEquals("Paul Smith", after.getDisplayName());
+        assertSame(after, pool.intern(PAUL, "Paul Smith", "paul@example.com"));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void sharesStringsBetweenUsers() {
+        JiraUserPool pool = new JiraUserPool(10, 10);
+
+        JiraUser paul = pool.intern(PAUL, "Support", "support@example.com");
+        JiraUser ryan = pool.intern(RYAN, new String("Support"),
+            new String("support@example.com"));
+
+        assertNotSame(paul, ryan);
+        assertSame(paul.getDisplayName(), ryan.getDisplayName());
+        assertSame(paul.getEmailAddress(), ryan.getEmailAddress());
+    }
+
+    @Test
+    public void internsACopyOfUsersBuiltElsewhere() {
+        JiraUserPool pool = new JiraUserPool(10, 10);
+        JiraUser user = new JiraUser(PAUL, "Paul", "paul@example.com");
+
+        JiraUser pooled = pool.intern(user);
+
+        assertNotSame(user, pooled);
+        assertSame(pooled, pool.intern(new JiraUser(PAUL, "Paul", "paul@example.com")));
+        assertNull(pool.intern((JiraUser) null));
+    }
+
+    @Test
+    public void stopsPoolingWhenFull() {
+        JiraUserPool pool = new JiraUserPool(1, 10);
+        pool.intern(PAUL, "Paul", "paul@example.com");
+
+        JiraUser ryan = pool.intern(RYAN, "Ryan", "ryan@example.com");
+
+        assertNotSame(ryan, pool.intern(RYAN, "Ryan", "ryan@example.com"));
+        assertEquals(3, pool.getMisses());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void usersWithoutSelfLinkAreNotPooled() {
+        JiraUserPool pool = new JiraUserPool(10, 10);
+
+        JiraUser first = pool.intern(null, "Paul", "paul@example.com");
+
+        assertNotSame(first, pool.intern(null, "Paul", "paul@example.com"));
+        assertEquals(0, pool.size());
+    }
+}
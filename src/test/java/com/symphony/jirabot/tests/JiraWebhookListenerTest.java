@@ -0,0 +1,203 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.webhooks.JiraWebhookListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Posts recorded JIRA webhook payloads to a listener on localhost.
+ */
+public class JiraWebhookListenerTest {
+
+    private static final String PATH = "/jira/webhook";
+    private static final String SECRET = "s3cr3t+token";
+    private static final int QUEUE_CAPACITY = 16;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final BlockingQueue<JiraIssue> receivedIssues = new LinkedBlockingQueue<JiraIssue>();
+    private JiraWebhookListener listener;
+
+    @Before
+    public void startListener() throws Exception {
+        listener = new JiraWebhookListener("127.0.0.1", 0, PATH, SECRET, QUEUE_CAPACITY,
+            MAX_BODY_BYTES, new Consumer<JiraIssue>() {
+                public void accept(JiraIssue issue) {
+                    receivedIssues.add(issue);
+                }
+            });
+        listener.start();
+    }
+
+    @After
+    public void stopListener() throws Exception {
+        listener.stop();
+    }
+
+    @Test
+    public void issueUpdated() throws Exception {
+        assertEquals(202, post(readPayload("jira_issue_updated.json")));
+
+        JiraIssue issue = receivedIssues.poll(5, TimeUnit.SECONDS);
+        assertEquals("CORE-1024", issue.getKey());
+        assertEquals("Core", issue.getProjectName());
+
+        JiraIssue.History[] histories = issue.getChangeLog().getHistories();
+        assertEquals(1, histories.length);
+        assertEquals("201934", histories[0].getId());
+        assertEquals("paul@symphony.com", histories[0].getAuthor().getEmailAddress());
+        assertEquals(issue.getUpdated(), histories[0].getCreated());
+
+        JiraIssue.Item item = histories[0].getItems()[0];
+        assertEquals("status", item.getField());
+        assertEquals("Resolved", item.getToString());
+        assertTrue(item.isImportant(JiraIssue.Item.Priority.High));
+    }
+
+    @Test
+    public void issueCreated() throws Exception {
+        assertEquals(202, post(readPayload("jira_issue_created.json")));
+
+        JiraIssue issue = receivedIssues.poll(5, TimeUnit.SECONDS);
+        assertEquals("CORE-1031", issue.getKey());
+        assertEquals(0, issue.getChangeLog().getHistories().length);
+        assertNull(issue.getAssignee());
+    }
+
+    @Test
+    public void otherEventsAreIgnored() throws Exception {
+        String payload = readPayload("jira_issue_updated.json")
+            .replace("jira:issue_updated", "jira:worklog_updated");
+        assertEquals(204, post(payload));
+        assertNull(receivedIssues.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void malformedPayloadIsRejected() throws Exception {
+        assertEquals(400, post("{\"webhookEvent\": \"jira:issue_updated\""));
+        assertNull(receivedIssues.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void missingTokenIsRejected() throws Exception {
+        assertEquals(403, post(readPayload("jira_issue_updated.json"), null));
+        assertNull(receivedIssues.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void wrongTokenIsRejected() throws Exception {
+        assertEquals(403, post(readPayload("jira_issue_updated.json"), "s3cr3t"));
+        assertEquals(403, post(readPayload("jira_issue_updated.json"), SECRET + "x"));
+        assertNull(receivedIssues.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void oversizedBodyIsRejected() throws Exception {
+        StringBuilder padding = new StringBuilder();
+        while (padding.length() <= MAX_BODY_BYTES) {
+            padding.append("0123456789abcdef");
+        }
+        String payload = readPayload("jira_issue_updated.json")
+            .replaceFirst("\\{", "{\"padding\": \"" + padding + "\", ");
+        assertEquals(413, post(payload));
+        assertNull(receivedIssues.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void fullQueueAsksJiraToRetry() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final BlockingQueue<JiraIssue> handled = new LinkedBlockingQueue<JiraIssue>();
+        JiraWebhookListener slowListener = new JiraWebhookListener("127.0.0.1", 0, PATH, SECRET,
+            1, MAX_BODY_BYTES, new Consumer<JiraIssue>() {
+                public void accept(JiraIssue issue) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    handled.add(issue);
+                }
+            });
+        slowListener.start();
+        try {
+            String payload = readPayload("jira_issue_updated.json");
+            // one issue held by the handler, one waiting, and no room for a third
+            assertEquals(202, post(slowListener, payload, SECRET));
+            assertEquals(202, post(slowListener, payload, SECRET));
+            assertEquals(503, post(slowListener, payload, SECRET));
+
+            release.countDown();
+            assertNotNull(handled.poll(5, TimeUnit.SECONDS));
+            assertNotNull(handled.poll(5, TimeUnit.SECONDS));
+            assertEquals(202, post(slowListener, payload, SECRET));
+        } finally {
+            release.countDown();
+            slowListener.stop();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void secretIsRequired() throws Exception {
+        new JiraWebhookListener("127.0.0.1", 0, PATH, "", QUEUE_CAPACITY, MAX_BODY_BYTES,
+            new Consumer<JiraIssue>() {
+                public void accept(JiraIssue issue) {
+                }
+            });
+    }
+
+    private int post(String payload) throws IOException {
+        return post(payload, SECRET);
+    }
+
+    private int post(String payload, String token) throws IOException {
+        return post(listener, payload, token);
+    }
+
+    private static int post(JiraWebhookListener listener, String payload, String token)
+        throws IOException {
+        String query = token == null ? "" : "?token=" + URLEncoder.encode(token, "UTF-8");
+        URL url = new URL("http://localhost:" + listener.getPort() + PATH + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        try (OutputStream body = connection.getOutputStream()) {
+            body.write(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return connection.getResponseCode();
+    }
+
+    private String readPayload(String name) throws IOException {
+        try (InputStream payload = getClass().getResourceAsStream("/webhooks/" + name)) {
+            // decoded once, as a chunk boundary may split a multi-byte character
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = payload.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
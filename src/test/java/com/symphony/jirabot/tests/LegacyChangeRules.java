@@ -0,0 +1,89 @@
+package com.symphony.jirabot.tests;
+
+import com.symphony.jirabot.models.ChangeClassifier;
+import com.symphony.jirabot.models.JiraIssue.Item.Priority;
+import com.symphony.jirabot.models.JiraIssue.Item.Sentiment;
+import com.symphony.jirabot.models.JiraIssue.Item.SpecialEmoji;
+
+/**
+ * The rules JiraIssue.Item classified changes with before ChangeClassifier, kept to check the
+ * built-in classification rules against.
+ */
+class LegacyChangeRules {
+
+    private static final int HIGH_BAD_FACE_PALM =
+        ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.Face_Palm);
+    private static final int HIGH_BAD_RED_EXCLAMATION_MARK =
+        ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.Red_Exclamation_Mark);
+    private static final int HIGH_BAD_SOB_AND_FACE_PALM =
+        ChangeClassifier.pack(Priority.HIGH, Sentiment.BAD, SpecialEmoji.Sob_And_Face_Palm);
+    private static final int HIGH_GREAT =
+        ChangeClassifier.pack(Priority.HIGH, Sentiment.GREAT, SpecialEmoji.None);
+    private static final int LOW_GOOD =
+        ChangeClassifier.pack(Priority.LOW, Sentiment.GOOD, SpecialEmoji.None);
+    private static final int LOW_NEUTRAL =
+        ChangeClassifier.pack(Priority.LOW, Sentiment.NEUTRAL, SpecialEmoji.None);
+    private static final int MEDIUM_GOOD =
+        ChangeClassifier.pack(Priority.MEDIUM, Sentiment.GOOD, SpecialEmoji.None);
+    private static final int MEDIUM_NEUTRAL =
+        ChangeClassifier.pack(Priority.MEDIUM, Sentiment.NEUTRAL, SpecialEmoji.None);
+
+    static int classify(String field, String fromString, String toString) {
+        if(field.equalsIgnoreCase("status")) {
+            if(toString.equals("Open")) {
+                return LOW_NEUTRAL;
+            }
+            else if(toString.equals("In Progress")) {
+                if(fromString.equals("Reopened")) {
+                    return HIGH_BAD_SOB_AND_FACE_PALM;
+                }
+                return MEDIUM_GOOD;
+            }
+            else if(toString.equals("Resolved")) {
+                return HIGH_GREAT;
+            }
+            else if(toString.equals("Reopened")) {
+                return HIGH_BAD_FACE_PALM;
+            }
+            else if(toString.equals("Closed")) {
+                return HIGH_GREAT;
+            }
+            else if(toString.equals("ready for code review")) {
+                return HIGH_GREAT;
+            }
+            else if(toString.equals("Ready for QA")) {
+                return HIGH_GREAT;
+            }
+            else {
+                return LOW_GOOD;
+            }
+        }
+        else if(field.equalsIgnoreCase("assignee")) {
+            return MEDIUM_NEUTRAL;
+        }
+        else if(field.equalsIgnoreCase("key")) {
+            return LOW_NEUTRAL;
+        }
+        else if(field.equalsIgnoreCase("labels")) {
+            return LOW_NEUTRAL;
+        }
+        else if(field.equalsIgnoreCase("project")) {
+            return LOW_NEUTRAL;
+        }
+        else if(field.equalsIgnoreCase("version")) {
+            return MEDIUM_NEUTRAL;
+        }
+        else if(field.equalsIgnoreCase("rank")) {
+            if(toString.contains("higher")) {
+                return HIGH_BAD_RED_EXCLAMATION_MARK;
+            }
+            return LOW_GOOD;
+        }
+        else if(field.equalsIgnoreCase("Link")) {
+            return MEDIUM_NEUTRAL;
+        }
+        else {
+            return LOW_NEUTRAL;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.stores.MappedBloomFilter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+/**
+ * Round trips keys through the memory-mapped file of a MappedBloomFilter.
+ */
+public class MappedBloomFilterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keysSurviveReopening() throws Exception {
+        File file = new File(folder.getRoot(), "bloom");
+
+        MappedBloomFilter filter = new MappedBloomFilter(file, 15000, 10);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("issue-" + i + "/history-" + i);
+        }
+        filter.flush();
+
+        MappedBloomFilter reopened = new MappedBloomFilter(file, 15000, 10);
+        assertEquals(1000, reopened.getInsertions());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(reopened.mightContain("issue-" + i + "/history-" + i));
+        }
+    }
+
+    @Test
+    public void falsePositivesStayRare() throws Exception {
+        MappedBloomFilter filter = new MappedBloomFilter(folder.newFile(), 15000, 10);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("delivered-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("new-" + i)) {
+                falsePositives++;
+            }
+        }
+        // about 0.1% expected
+        assertTrue(falsePositives + " false positives", falsePositives < 50);
+    }
+
+    @Test
+    public void fileOfAnotherShapeIsReset() throws Exception {
+        File file = new File(folder.getRoot(), "bloom");
+
+        MappedBloomFilter filter = new MappedBloomFilter(file, 15000, 10);
+        filter.put("delivered");
+        filter.flush();
+
+        MappedBloomFilter resized = new MappedBloomFilter(file, 30000, 10);
+        assertEquals(0, resized.getInsertions());
+        assertFalse(resized.mightContain("delivered"));
+    }
+
+    @Test
+    public void clearForgetsEveryKey() throws Exception {
+        MappedBloomFilter filter = new MappedBloomFilter(folder.newFile(), 15000, 10);
+        filter.put("delivered");
+        filter.clear();
+
+        assertEquals(0, filter.getInsertions());
+        assertFalse(filter.mightContain("delivered"));
+    }
+}
@@ -0,0 +1,182 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.clients.OAuthSigningContext;
+
+import net.oauth.OAuth;
+import net.oauth.OAuthAccessor;
+import net.oauth.OAuthConsumer;
+import net.oauth.OAuthMessage;
+import net.oauth.OAuthServiceProvider;
+import net.oauth.OAuthProblemException;
+import net.oauth.http.HttpMessage;
+import net.oauth.signature.OAuthSignatureMethod;
+import net.oauth.signature.RSA_SHA1;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Signs requests with OAuthSigningContext and checks the signatures with the public key.
+ */
+public class OAuthSigningContextTest {
+
+    private static final String URL = "https://jira.example.com/rest/api/2/search?jql=project"
+        + "%20in%20(%22CORE%22)&expand=changelog&maxResults=50&startAt=0";
+
+    private static final OAuthServiceProvider SERVICE_PROVIDER = new OAuthServiceProvider(
+        "https://jira.example.com/request-token", "https://jira.example.com/authorize",
+        "https://jira.example.com/access-token");
+
+    private static KeyPair keyPair;
+
+    @BeforeClass
+    public static void generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+    }
+
+    @Test
+    public void signaturesVerifyWithThePublicKey() throws Exception {
+        OAuthSigningContext context = newContext(pem("PRIVATE KEY", pkcs8()));
+
+        OAuthMessage request = context.newRequestMessage("GET", URL);
+
+        verify(request);
+        assertEquals("token", request.getToken());
+        assertEquals(OAuth.RSA_SHA1, request.getSignatureMethod());
+        assertTrue(request.getHeader(HttpMessage.ACCEPT_ENCODING).contains("gzip"));
+
+        request.addParameter("startAt", "50");
+        try {
+            verify(request);
+            fail("the request was changed after signing");
+        } catch (OAuthProblemException expected) {
+            assertEquals("signature_invalid", expected.getProblem());
+        }
+    }
+
+    @Test
+    public void readsPkcs1AndPkcs8Keys() throws Exception {
+        assertEquals(keyPair.getPrivate(),
+            OAuthSigningContext.parsePrivateKey(pem("PRIVATE KEY", pkcs8())));
+        assertEquals(keyPair.getPrivate(),
+            OAuthSigningContext.parsePrivateKey(pem("RSA PRIVATE KEY", pkcs1())));
+    }
+
+    @Test
+    public void rejectsOtherKeys() throws Exception {
+        try {
+            OAuthSigningContext.parsePrivateKey(
+                pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+            fail("a public key cannot sign");
+        } catch (RuntimeException expected) {
+            assertEquals("unsupported JIRA consumer private key: -----BEGIN PUBLIC KEY-----",
+                expected.getMessage());
+        }
+    }
+
+    @Test
+    public void sharedContextSignsFromManyThreads() throws Exception {
+        final OAuthSigningContext context = newContext(pem("PRIVATE KEY", pkcs8()));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<OAuthMessage>>> results =
+                new ArrayList<Future<List<OAuthMessage>>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<List<OAuthMessage>>() {
+                    public List<OAuthMessage> call() throws Exception {
+                        List<OAuthMessage> requests = new ArrayList<OAuthMessage>();
+                        for (int j = 0; j < 20; j++) {
+                            requests.add(context.newRequestMessage("GET", URL + "&n=" + j));
+                        }
+                        return requests;
+                    }
+                }));
+            }
+
+            for (Future<List<OAuthMessage>> result : results) {
+                for (OAuthMessage request : result.get(30, TimeUnit.SECONDS)) {
+                    verify(request);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void accessTokenIsReadForEveryRequest() throws Exception {
+        final AtomicReference<String> accessToken = new AtomicReference<String>("token");
+        OAuthSigningContext context = new OAuthSigningContext(SERVICE_PROVIDER,
+            "https://placeholder", "consumer", pem("PRIVATE KEY", pkcs8()),
+            new Supplier<String>() {
+                public String get() {
+                    return accessToken.get();
+                }
+            });
+        assertEquals("token", context.newAccessor().accessToken);
+
+        accessToken.set("rotated");
+
+        assertEquals("rotated", context.newRequestMessage("GET", URL).getToken());
+    }
+
+    private static OAuthSigningContext newContext(String privateKeyPem) {
+        return new OAuthSigningContext(SERVICE_PROVIDER, "https://placeholder", "consumer",
+            privateKeyPem, "token");
+    }
+
+    /**
+     * @throws OAuthProblemException If the signature does not match
+     */
+    private static void verify(OAuthMessage request) throws Exception {
+        OAuthSignatureMethod.newSigner(request, verifier()).validate(request);
+    }
+
+    /**
+     * The accessor JIRA would check signatures with, holding only the public key
+     */
+    private static OAuthAccessor verifier() {
+        OAuthConsumer consumer = new OAuthConsumer(null, "consumer", null, SERVICE_PROVIDER);
+        consumer.setProperty(RSA_SHA1.PUBLIC_KEY, keyPair.getPublic());
+        return new OAuthAccessor(consumer);
+    }
+
+    private static byte[] pkcs8() {
+        return keyPair.getPrivate().getEncoded();
+    }
+
+    /**
+     * The RSAPrivateKey structure wrapped by the PKCS#8 encoding, whose header takes 26 bytes for
+     * a 2048 bit key
+     */
+    private static byte[] pkcs1() {
+        byte[] pkcs8 = pkcs8();
+        return Arrays.copyOfRange(pkcs8, 26, pkcs8.length);
+    }
+
+    private static String pem(String type, byte[] der) throws Exception {
+        return "-----BEGIN " + type + "-----\n"
+            + Base64.getMimeEncoder(64, "\n".getBytes("UTF-8")).encodeToString(der)
+            + "\n-----END " + type + "-----\n";
+    }
+}
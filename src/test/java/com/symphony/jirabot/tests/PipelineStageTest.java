@@ -0,0 +1,58 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.pipeline.PipelineStage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Checks that a PipelineStage keeps processing items, in order per key, after one fails.
+ */
+public class PipelineStageTest {
+
+    @Test
+    public void workerSurvivesAnError() throws Exception {
+        final List<Integer> processed = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(3);
+        PipelineStage<Integer> stage = new PipelineStage<Integer>("test", 1, 8,
+            new Consumer<Integer>() {
+                public void accept(Integer item) {
+                    done.countDown();
+                    if (item == 2) {
+                        throw new StackOverflowError("from item 2");
+                    }
+                    processed.add(item);
+                }
+            });
+        try {
+            stage.submit(1, "key");
+            stage.submit(2, "key");
+            stage.submit(3, "key");
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitForProcessedCount(stage, 3);
+            assertEquals(Arrays.asList(1, 3), processed);
+        } finally {
+            stage.shutdown();
+        }
+    }
+
+    private static void waitForProcessedCount(PipelineStage<?> stage, long count)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stage.getProcessedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, stage.getProcessedCount());
+    }
+}
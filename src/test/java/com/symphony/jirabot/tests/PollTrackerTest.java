@@ -0,0 +1,61 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.pipeline.PollTracker;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks how a poll waiting on a PollTracker ends.
+ */
+public class PollTrackerTest {
+
+    @Test
+    public void awaitReturnsOnceEveryItemFinished() throws Exception {
+        PollTracker tracker = new PollTracker();
+        tracker.itemStarted();
+        tracker.itemStarted();
+        tracker.sourceFinished();
+        tracker.itemFinished();
+        tracker.itemFinished();
+
+        tracker.await(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void awaitThrowsTheFirstFailure() throws Exception {
+        PollTracker tracker = new PollTracker();
+        tracker.itemStarted();
+        tracker.itemStarted();
+        tracker.sourceFinished();
+        RuntimeException first = new RuntimeException("first");
+        tracker.itemFailed(first);
+        tracker.itemFailed(new RuntimeException("second"));
+
+        try {
+            tracker.await(1, TimeUnit.SECONDS);
+            fail("expected the first failure");
+        } catch (RuntimeException e) {
+            assertSame(first, e);
+        }
+    }
+
+    @Test
+    public void awaitFailsWhenAnItemNeverFinishes() throws Exception {
+        PollTracker tracker = new PollTracker();
+        tracker.itemStarted();
+        tracker.sourceFinished();
+
+        try {
+            tracker.await(50, TimeUnit.MILLISECONDS);
+            fail("expected the wait to time out");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("1 pipeline item(s) still pending"));
+        }
+    }
+}
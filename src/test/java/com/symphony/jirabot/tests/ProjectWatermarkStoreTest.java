@@ -0,0 +1,87 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.stores.ProjectWatermarkStore;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+/**
+ * Checks that ProjectWatermarkStore replays its log after a restart.
+ */
+public class ProjectWatermarkStoreTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysWatermarksAfterRestart() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks");
+
+        ProjectWatermarkStore store = new ProjectWatermarkStore(file);
+        assertNull(store.getWatermark("CORE"));
+        store.advance("CORE", new Date(1000));
+        store.advance("WEB", new Date(2000));
+        store.advance("CORE", new Date(3000));
+
+        ProjectWatermarkStore restarted = new ProjectWatermarkStore(file);
+        assertEquals(new Date(3000), restarted.getWatermark("CORE"));
+        assertEquals(new Date(2000), restarted.getWatermark("WEB"));
+        assertNull(restarted.getWatermark("DOCS"));
+    }
+
+    @Test
+    public void neverMovesBackwards() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks");
+
+        ProjectWatermarkStore store = new ProjectWatermarkStore(file);
+        store.advance("CORE", new Date(3000));
+        store.advance("CORE", new Date(1000));
+        assertEquals(new Date(3000), store.getWatermark("CORE"));
+
+        assertEquals(new Date(3000), new ProjectWatermarkStore(file).getWatermark("CORE"));
+    }
+
+    @Test
+    public void skipsTornLines() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+            StandardCharsets.UTF_8)) {
+            writer.write("CORE\t1000\nWEB\t2000\nCORE\t");
+        }
+
+        ProjectWatermarkStore store = new ProjectWatermarkStore(file);
+        assertEquals(new Date(1000), store.getWatermark("CORE"));
+        assertEquals(new Date(2000), store.getWatermark("WEB"));
+    }
+
+    @Test
+    public void compactsToOneLinePerProject() throws Exception {
+        File file = new File(folder.getRoot(), "watermarks");
+
+        ProjectWatermarkStore store = new ProjectWatermarkStore(file);
+        for (int i = 1; i <= 300; i++) {
+            store.advance("CORE", new Date(i));
+            store.advance("WEB", new Date(1000 + i));
+        }
+
+        int lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size();
+        assertTrue(lines + " lines", lines < 300);
+
+        ProjectWatermarkStore restarted = new ProjectWatermarkStore(file);
+        assertEquals(new Date(300), restarted.getWatermark("CORE"));
+        assertEquals(new Date(1300), restarted.getWatermark("WEB"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.symphony.jirabot.clients.RequestCoalescer;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Checks what callers of RequestCoalescer share while a request is in flight.
+ */
+public class RequestCoalescerTest {
+
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void callersShareTheRequestInFlight() throws Exception {
+        Future<String> first = call("user/paul", new Supplier<String>() {
+            public String get() {
+                awaitRelease();
+                return "paul@example.com";
+            }
+        });
+        Future<String> second = callWhileInFlight("user/paul");
+        release.countDown();
+
+        assertEquals("paul@example.com", first.get(5, TimeUnit.SECONDS));
+        assertEquals("paul@example.com", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, coalescer.getExecuted());
+        assertEquals(1, coalescer.getSaved());
+    }
+
+    @Test
+    public void finishedRequestsAreNotCached() {
+        Supplier<String> request = new Supplier<String>() {
+            public String get() {
+                return "paul@example.com";
+            }
+        };
+        coalescer.execute("user/paul", request);
+        coalescer.execute("user/paul", request);
+        coalescer.execute("user/ryan", request);
+
+        assertEquals(3, coalescer.getExecuted());
+        assertEquals(0, coalescer.getSaved());
+    }
+
+    @Test
+    public void callersShareTheFailure() throws Exception {
+        final RuntimeException failure = new RuntimeException("JIRA is down");
+        Future<String> first = call("user/paul", new Supplier<String>() {
+            public String get() {
+                awaitRelease();
+                throw failure;
+            }
+        });
+        Future<String> second = callWhileInFlight("user/paul");
+        release.countDown();
+
+        assertSame(failure, failureOf(first));
+        assertSame(failure, failureOf(second));
+    }
+
+    @Test
+    public void callersShareErrors() throws Exception {
+        final Error error = new Error("class failed to load");
+        Future<String> first = call("user/paul", new Supplier<String>() {
+            public String get() {
+                awaitRelease();
+                throw error;
+            }
+        });
+        Future<String> second = callWhileInFlight("user/paul");
+        release.countDown();
+
+        assertSame(error, failureOf(first));
+        assertSame(error, failureOf(second));
+    }
+
+    private Future<String> call(final String key, final Supplier<String> request) {
+        return callers.submit(new Callable<String>() {
+            public String call() {
+                return coalescer.execute(key, request);
+            }
+        });
+    }
+
+    /**
+     * Calls while the first request for the key is held, and returns once the call is waiting
+     */
+    private Future<String> callWhileInFlight(String key) throws InterruptedException {
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> call = call(key, new Supplier<String>() {
+            public String get() {
+                throw new AssertionError("the request in flight was run again");
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getSaved() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, coalescer.getSaved());
+        return call;
+    }
+
+    private void awaitRelease() {
+        started.countDown();
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Throwable failureOf(Future<String> call) throws Exception {
+        try {
+            call.get(5, TimeUnit.SECONDS);
+            fail("the request failed");
+            return null;
+        } catch (ExecutionException expected) {
+            return expected.getCause();
+        }
+    }
+}
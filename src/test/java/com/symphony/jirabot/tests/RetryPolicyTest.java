@@ -0,0 +1,86 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.retry.RetryPolicy;
+
+import org.apache.http.client.utils.DateUtils;
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Checks the backoff bounds, retryable statuses and Retry-After parsing of RetryPolicy.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void backoffDoublesWithinJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertBetween(50, 100, policy.getBackoffMillis(1));
+            assertBetween(100, 200, policy.getBackoffMillis(2));
+            assertBetween(200, 400, policy.getBackoffMillis(3));
+            assertBetween(400, 800, policy.getBackoffMillis(4));
+        }
+    }
+
+    @Test
+    public void backoffIsCappedAtMaxDelay() {
+        RetryPolicy policy = new RetryPolicy(5, 100, 1000);
+        for (int i = 0; i < 1000; i++) {
+            assertBetween(500, 1000, policy.getBackoffMillis(5));
+            // no overflow however many attempts failed
+            assertBetween(500, 1000, policy.getBackoffMillis(64));
+            assertBetween(500, 1000, policy.getBackoffMillis(Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(401));
+        assertFalse(RetryPolicy.isRetryable(403));
+        assertFalse(RetryPolicy.isRetryable(404));
+        assertFalse(RetryPolicy.isRetryable(501));
+    }
+
+    @Test
+    public void transientFailuresAreRetried() {
+        assertTrue(RetryPolicy.isRetryable(408));
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(500));
+        assertTrue(RetryPolicy.isRetryable(502));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertTrue(RetryPolicy.isRetryable(504));
+    }
+
+    @Test
+    public void retryAfterInSeconds() {
+        assertEquals(120000, RetryPolicy.parseRetryAfterMillis("120", 0));
+        assertEquals(5000, RetryPolicy.parseRetryAfterMillis(" 5 ", 0));
+        assertEquals(0, RetryPolicy.parseRetryAfterMillis("-5", 0));
+    }
+
+    @Test
+    public void retryAfterAsHttpDate() {
+        long now = 1466010761000L;
+        String inOneMinute = DateUtils.formatDate(new Date(now + 60000));
+        assertEquals(60000, RetryPolicy.parseRetryAfterMillis(inOneMinute, now));
+
+        String aMinuteAgo = DateUtils.formatDate(new Date(now - 60000));
+        assertEquals(0, RetryPolicy.parseRetryAfterMillis(aMinuteAgo, now));
+    }
+
+    @Test
+    public void invalidRetryAfterIsIgnored() {
+        assertEquals(0, RetryPolicy.parseRetryAfterMillis("soon", 0));
+        assertEquals(0, RetryPolicy.parseRetryAfterMillis("", 0));
+    }
+
+    private static void assertBetween(long min, long max, long value) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
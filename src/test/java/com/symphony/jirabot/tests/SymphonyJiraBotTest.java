@@ -0,0 +1,310 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.symphony.api.agent.model.V2Message;
+import com.symphony.api.pod.model.V2RoomDetail;
+import com.symphony.jirabot.SymphonyJiraBot;
+import com.symphony.jirabot.clients.IJiraClient;
+import com.symphony.jirabot.clients.ISymphonyClient;
+import com.symphony.jirabot.configurations.SimpleConfigurationProvider;
+import com.symphony.jirabot.formatters.MessageML;
+import com.symphony.jirabot.models.JiraIssue;
+import com.symphony.jirabot.models.JiraProject;
+import com.symphony.jirabot.models.JiraUser;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Polls fake JIRA projects through SymphonyJiraBot, without a JIRA or a Symphony to talk to.
+ */
+public class SymphonyJiraBotTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void projectsArePolledOnTheBoundedPool() throws Exception {
+        final AtomicInteger searchesInFlight = new AtomicInteger();
+        final AtomicInteger maxSearchesInFlight = new AtomicInteger();
+        // each search waits for a second one, so the polls only finish if two run at once
+        final CyclicBarrier pairs = new CyclicBarrier(2);
+        FakeJiraClient jiraClient = new FakeJiraClient() {
+            @Override
+            protected void searching() throws Exception {
+                int inFlight = searchesInFlight.incrementAndGet();
+                int max = maxSearchesInFlight.get();
+                while (inFlight > max && !maxSearchesInFlight.compareAndSet(max, inFlight)) {
+                    max = maxSearchesInFlight.get();
+                }
+                pairs.await(5, TimeUnit.SECONDS);
+                Thread.sleep(50);
+                searchesInFlight.decrementAndGet();
+            }
+        };
+        SymphonyJiraBot bot = newBot(jiraClient, 2);
+
+        List<CompletableFuture<Integer>> polls = new ArrayList<CompletableFuture<Integer>>();
+        for (String key : new String[] {"CORE", "WEB", "DOCS", "OPS"}) {
+            polls.add(bot.pollJiraProject(project(key)));
+        }
+        for (CompletableFuture<Integer> poll : polls) {
+            assertEquals(Integer.valueOf(0), poll.get(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(4, jiraClient.searches.size());
+        assertEquals(2, maxSearchesInFlight.get());
+    }
+
+    @Test
+    public void watermarkMovesToTheLastDeliveredIssue() throws Exception {
+        FakeJiraClient jiraClient = new FakeJiraClient();
+        jiraClient.issuesByProjectKey.put("CORE", Arrays.asList(
+            JiraIssues.toIssue(JiraIssues.issue("1", "CORE", 1000,
+                JiraIssues.history("11", 1000, "In Progress", "Resolved"))),
+            JiraIssues.toIssue(JiraIssues.issue("2", "CORE", 2000,
+                JiraIssues.history("21", 2000, "Open", "In Progress")))));
+        SymphonyJiraBot bot = newBot(jiraClient, 1);
+        JiraProject core = project("CORE");
+
+        assertEquals(Integer.valueOf(2), bot.pollJiraProject(core).get(10, TimeUnit.SECONDS));
+        assertNull(jiraClient.searches.get(0).get(core));
+
+        // the next poll, and the first one after a restart, search from the last update delivered
+        bot.pollJiraProject(core).get(10, TimeUnit.SECONDS);
+        assertEquals(new Date(2000), jiraClient.searches.get(1).get(core));
+
+        FakeJiraClient restartedClient = new FakeJiraClient();
+        newBot(restartedClient, 1).pollJiraProject(core).get(10, TimeUnit.SECONDS);
+        assertEquals(new Date(2000), restartedClient.searches.get(0).get(core));
+    }
+
+    @Test
+    public void failedSearchKeepsTheWatermarkBeforeItsLastUpdateTime() throws Exception {
+        FakeJiraClient jiraClient = new FakeJiraClient();
+        jiraClient.issuesByProjectKey.put("CORE", Arrays.asList(
+            JiraIssues.toIssue(JiraIssues.issue("1", "CORE", 1000,
+                JiraIssues.history("11", 1000, "In Progress", "Resolved"))),
+            JiraIssues.toIssue(JiraIssues.issue("2", "CORE", 2000,
+                JiraIssues.history("21", 2000, "In Progress", "Resolved")))));
+        jiraClient.failure = new RuntimeException("JIRA went away on the second page");
+        SymphonyJiraBot bot = newBot(jiraClient, 1);
+        JiraProject core = project("CORE");
+
+        try {
+            bot.pollJiraProject(core).get(10, TimeUnit.SECONDS);
+            fail("the search failed");
+        } catch (ExecutionException expected) {
+            assertEquals("JIRA went away on the second page", expected.getCause().getMessage());
+        }
+
+        // the issues the search did not get to may have been updated at 2000 too
+        bot.pollJiraProject(core).get(10, TimeUnit.SECONDS);
+        assertEquals(new Date(1000), jiraClient.searches.get(1).get(core));
+    }
+
+    @Test
+    public void combinedPollSearchesOneGroupOfProjectsPerThread() throws Exception {
+        FakeJiraClient jiraClient = new FakeJiraClient();
+        jiraClient.issuesByProjectKey.put("WEB", Arrays.asList(
+            JiraIssues.toIssue(JiraIssues.issue("1", "WEB", 1000,
+                JiraIssues.history("11", 1000, "Open", "In Progress")))));
+        SymphonyJiraBot bot = newBot(jiraClient, 2);
+        List<JiraProject> projects = new ArrayList<JiraProject>();
+        for (String key : new String[] {"CORE", "WEB", "DOCS", "OPS", "QA"}) {
+            projects.add(project(key));
+        }
+
+        Map<String, Integer> numIssuesByProject =
+            bot.pollJiraProjects(projects).get(10, TimeUnit.SECONDS);
+
+        assertEquals(5, numIssuesByProject.size());
+        assertEquals(Integer.valueOf(1), numIssuesByProject.get("web"));
+        assertEquals(Integer.valueOf(0), numIssuesByProject.get("core"));
+        assertEquals(2, jiraClient.searches.size());
+        List<JiraProject> searched = new ArrayList<JiraProject>();
+        List<Integer> searchSizes = new ArrayList<Integer>();
+        for (Map<JiraProject, Date> search : jiraClient.searches) {
+            searched.addAll(search.keySet());
+            searchSizes.add(search.size());
+        }
+        Collections.sort(searchSizes);
+        assertEquals(Arrays.asList(2, 3), searchSizes);
+        assertEquals(new HashSet<JiraProject>(projects), new HashSet<JiraProject>(searched));
+    }
+
+    SymphonyJiraBot newBot(IJiraClient jiraClient, int pollingThreads) {
+        return new SymphonyJiraBot(new TestConfiguration(folder.getRoot(), pollingThreads),
+            jiraClient, new FakeSymphonyClient());
+    }
+
+    static JiraProject project(String key) throws IOException {
+        return new ObjectMapper().readValue(
+            "{\"key\":\"" + key + "\",\"name\":\"" + key.toLowerCase() + "\"}", JiraProject.class);
+    }
+
+    /**
+     * Configuration keeping the bot's files in a temporary folder
+     */
+    static class TestConfiguration extends SimpleConfigurationProvider {
+        private final File folder;
+        private final int pollingThreads;
+
+        TestConfiguration(File folder, int pollingThreads) {
+            this.folder = folder;
+            this.pollingThreads = pollingThreads;
+        }
+
+        @Override
+        public int getJiraPollingThreadCount() {
+            return pollingThreads;
+        }
+
+        @Override
+        public String getJiraWatermarkFilePath() {
+            return new File(folder, "jira-watermarks.log").getPath();
+        }
+
+        @Override
+        public String getDeliveredEventIndexPath() {
+            return new File(folder, "jira-delivered-events").getPath();
+        }
+
+        @Override
+        public long getDeliveredEventIndexCapacity() {
+            return 1000;
+        }
+
+        @Override
+        public int getPipelineDrainTimeoutInSeconds() {
+            return 10;
+        }
+    }
+
+    /**
+     * Records the searches made, and hands over the issues queued for each project
+     */
+    static class FakeJiraClient implements IJiraClient {
+        final List<Map<JiraProject, Date>> searches =
+            Collections.synchronizedList(new ArrayList<Map<JiraProject, Date>>());
+        final Map<String, List<JiraIssue>> issuesByProjectKey =
+            new ConcurrentHashMap<String, List<JiraIssue>>();
+
+        /**
+         * Thrown by the next search once it handed over its issues
+         */
+        volatile RuntimeException failure;
+
+        /**
+         * Called at the start of every search
+         */
+        protected void searching() throws Exception {
+        }
+
+        public void authenticate() {
+        }
+
+        public JiraUser getJiraUserForEmailAddress(String emailAddress) {
+            return null;
+        }
+
+        public JiraProject[] getAllProjects() {
+            return new JiraProject[0];
+        }
+
+        public ArrayList<JiraIssue> getIssuesForProject(JiraProject project) {
+            return getIssuesForProject(project, null);
+        }
+
+        public ArrayList<JiraIssue> getIssuesForProject(JiraProject project, Date updatedSince) {
+            final ArrayList<JiraIssue> issues = new ArrayList<JiraIssue>();
+            forEachIssueForProject(project, updatedSince, new Consumer<JiraIssue>() {
+                public void accept(JiraIssue issue) {
+                    issues.add(issue);
+                }
+            });
+            return issues;
+        }
+
+        public int forEachIssueForProject(JiraProject project, Date updatedSince,
+                                          Consumer<JiraIssue> handler) {
+            return forEachIssueForProjects(Collections.singletonMap(project, updatedSince),
+                handler);
+        }
+
+        public int forEachIssueForProjects(Map<JiraProject, Date> updatedSinceByProject,
+                                           Consumer<JiraIssue> handler) {
+            searches.add(updatedSinceByProject);
+            try {
+                searching();
+            } catch (Exception e) {
+                throw new RuntimeException("search failed", e);
+            }
+
+            int numIssues = 0;
+            for (JiraProject project : updatedSinceByProject.keySet()) {
+                List<JiraIssue> issues = issuesByProjectKey.remove(project.getKey());
+                if (issues != null) {
+                    for (JiraIssue issue : issues) {
+                        handler.accept(issue);
+                        numIssues++;
+                    }
+                }
+            }
+
+            RuntimeException nextFailure = failure;
+            failure = null;
+            if (nextFailure != null) {
+                throw nextFailure;
+            }
+            return numIssues;
+        }
+    }
+
+    /**
+     * A Symphony without any room to post in
+     */
+    static class FakeSymphonyClient implements ISymphonyClient {
+
+        public void authenticate() {
+        }
+
+        public V2RoomDetail getRoomForSearchQuery(String query) {
+            return null;
+        }
+
+        public V2Message sendMessage(String roomID, MessageML messageML) {
+            return null;
+        }
+
+        public V2Message sendMessage(String roomID, String text) {
+            return null;
+        }
+
+        public V2Message sendMessage(V2RoomDetail roomDetail, MessageML messageML) {
+            return null;
+        }
+    }
+}
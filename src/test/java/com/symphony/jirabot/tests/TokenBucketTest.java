@@ -0,0 +1,59 @@
+package com.symphony.jirabot.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.symphony.jirabot.ratelimit.TokenBucket;
+
+import org.junit.Test;
+
+/**
+ * Checks the burst and steady rate of TokenBucket. Waits are checked with some slack, as they are
+ * made by sleeping.
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void burstGoesThroughWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket("search", 1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.acquire());
+        }
+        assertEquals(3, bucket.getAcquired());
+        assertEquals(0, bucket.getDelayed());
+    }
+
+    @Test
+    public void requestsBeyondTheBurstAreSpacedAtTheRate() {
+        TokenBucket bucket = new TokenBucket("search", 10, 1);
+        long start = System.nanoTime();
+
+        assertEquals(0, bucket.acquire());
+        long firstWait = bucket.acquire();
+        long secondWait = bucket.acquire();
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        assertTrue("waited " + firstWait + "ms", firstWait >= 80 && firstWait <= 100);
+        assertTrue("waited " + secondWait + "ms", secondWait >= 80 && secondWait <= 100);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 180);
+        assertEquals(2, bucket.getDelayed());
+        assertEquals(firstWait + secondWait, bucket.getTotalWaitMillis(), 1);
+        assertEquals(Math.max(firstWait, secondWait), bucket.getMaxWaitMillis());
+    }
+
+    @Test
+    public void refillsUpToTheBurstWhileQuiet() throws Exception {
+        TokenBucket bucket = new TokenBucket("search", 20, 2);
+        bucket.acquire();
+        bucket.acquire();
+
+        // enough for 4 tokens, of which the bucket keeps 2
+        Thread.sleep(200);
+
+        assertEquals(0, bucket.acquire());
+        assertEquals(0, bucket.acquire());
+        assertTrue(bucket.acquire() > 0);
+        assertEquals(1, bucket.getDelayed());
+    }
+}